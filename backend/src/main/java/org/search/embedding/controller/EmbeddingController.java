@@ -1,18 +1,37 @@
 package org.search.embedding.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.search.embedding.dto.EmbeddingResponse;
 import org.search.embedding.dto.SimilarityRequest;
+import org.search.embedding.model.EmbeddingExporter;
+import org.search.embedding.model.FrontCodedDictionary;
+import org.search.embedding.service.AdmissionControl;
+import org.search.embedding.service.AdmissionRejectedException;
+import org.search.embedding.service.ConcurrencyLimiter;
+import org.search.embedding.service.DocumentWatcher;
 import org.search.embedding.service.EmbeddingService;
 import org.search.embedding.service.GenericEmbeddingService;
+import org.search.embedding.service.TrainingEventBroadcaster;
+import org.search.embedding.service.TrainingJob;
+import org.search.embedding.service.TrainingJobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 
 /**
  * REST API Controller for embedding operations
@@ -23,6 +42,8 @@ import java.util.Map;
 public class EmbeddingController {
 
     private static final Logger logger = LoggerFactory.getLogger(EmbeddingController.class);
+    
+    private static final int MAX_VOCABULARY_PAGE = 1000;
 
     @Autowired
     private EmbeddingService embeddingService;
@@ -30,31 +51,86 @@ public class EmbeddingController {
     @Autowired
     private GenericEmbeddingService huggingFaceService;
     
+    @Autowired
+    private DocumentWatcher documentWatcher;
+    
+    @Autowired
+    private TrainingJobService trainingJobService;
+    
+    @Autowired
+    private TrainingEventBroadcaster trainingEventBroadcaster;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private AdmissionControl admissionControl;
+    
     /**
-     * Train the custom embedding model
+     * Queue a training job for the custom embedding model
      */
     @PostMapping("/train")
     public ResponseEntity<Map<String, Object>> trainModel() {
         try {
-            // Run training in a separate thread to avoid blocking
-            new Thread(() -> {
-                try {
-                    embeddingService.trainModel();
-                } catch (Exception e) {
-                    logger.error("Error during model training", e);
-                }
-            }).start();
+            TrainingJob job = trainingJobService.submit("api");
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", "Training started");
-            response.put("message", "Model training has been initiated. Check /api/status for progress.");
+            Map<String, Object> response = new HashMap<>(job.toMap());
+            response.put("message", "Training job queued. Check /api/train/" + job.getId() + " for its state.");
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("error", "Training queue is full"));
         } catch (Exception e) {
             return handleError("Failed to start training", e);
         }
     }
     
+    /**
+     * List known training jobs, oldest first
+     */
+    @GetMapping("/train")
+    public ResponseEntity<Map<String, Object>> getTrainingJobs() {
+        List<Map<String, Object>> jobs = trainingJobService.getJobs().stream()
+                .map(TrainingJob::toMap)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(Map.of("jobs", jobs));
+    }
+    
+    /**
+     * Stream training progress as Server-Sent Events
+     */
+    @GetMapping(value = "/train/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTrainingEvents() {
+        return trainingEventBroadcaster.subscribe(embeddingService.getProgress());
+    }
+    
+    /**
+     * Get the state of a training job
+     */
+    @GetMapping("/train/{jobId}")
+    public ResponseEntity<Map<String, Object>> getTrainingJob(@PathVariable String jobId) {
+        TrainingJob job = trainingJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Unknown training job: " + jobId));
+        }
+        return ResponseEntity.ok(job.toMap());
+    }
+    
+    /**
+     * Cancel a queued or running training job
+     */
+    @DeleteMapping("/train/{jobId}")
+    public ResponseEntity<Map<String, Object>> cancelTrainingJob(@PathVariable String jobId) {
+        TrainingJob job = trainingJobService.cancel(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Unknown training job: " + jobId));
+        }
+        return ResponseEntity.ok(job.toMap());
+    }
+    
     /**
      * Get training status and progress
      */
@@ -65,6 +141,13 @@ public class EmbeddingController {
             response.put("progress", embeddingService.getProgress());
             response.put("config", embeddingService.getModelConfig());
             response.put("isTrained", embeddingService.isModelTrained());
+            response.put("genericCache", huggingFaceService.getVocabularyCacheStatus());
+            response.put("watcher", documentWatcher.getStatus());
+            response.put("admission", admissionControl.getStats());
+            response.put("coalescing", Map.of(
+                "custom", embeddingService.getCoalescingStats(),
+                "generic", huggingFaceService.getCoalescingStats()
+            ));
             
             if (embeddingService.isModelTrained()) {
                 response.put("stats", embeddingService.getTrainingStats());
@@ -77,19 +160,35 @@ public class EmbeddingController {
     }
     
     /**
-     * Get current vocabulary
+     * Get one page of the vocabulary, optionally limited to words starting
+     * with a prefix (for autocomplete)
      */
     @GetMapping("/vocabulary")
-    public ResponseEntity<Map<String, Object>> getVocabulary() {
+    public ResponseEntity<Map<String, Object>> getVocabulary(
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "100") int limit) {
         try {
-            List<String> vocabulary = embeddingService.getVocabulary();
+            if (offset < 0 || limit < 1 || limit > MAX_VOCABULARY_PAGE) {
+                throw new IllegalArgumentException(
+                        "offset must be >= 0 and limit between 1 and " + MAX_VOCABULARY_PAGE);
+            }
+            FrontCodedDictionary dictionary = embeddingService.getDictionary();
+            String key = prefix.toLowerCase();
             
             Map<String, Object> response = new HashMap<>();
-            response.put("vocabulary", vocabulary);
-            response.put("size", vocabulary.size());
+            response.put("vocabulary", dictionary.findByPrefix(key, offset, limit));
+            response.put("size", dictionary.size());
+            response.put("matches", dictionary.countPrefix(key));
+            response.put("prefix", prefix);
+            response.put("offset", offset);
+            response.put("limit", limit);
             response.put("isTrained", embeddingService.isModelTrained());
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return handleError("Failed to get vocabulary", e);
         }
@@ -101,18 +200,25 @@ public class EmbeddingController {
     @PostMapping("/similarity/custom")
     public ResponseEntity<Map<String, Object>> calculateCustomSimilarity(@RequestBody SimilarityRequest request) {
         try {
-            float similarity = embeddingService.calculateCustomSimilarity(
-                request.getWord1(), 
-                request.getWord2()
-            );
+            ConcurrencyLimiter.Permit permit = admissionControl.admit(AdmissionControl.CUSTOM);
+            try (permit) {
+                float similarity = embeddingService.calculateCustomSimilarity(
+                    request.getWord1(), 
+                    request.getWord2()
+                );
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("word1", request.getWord1());
-            response.put("word2", request.getWord2());
-            response.put("similarity", similarity);
-            response.put("model", "custom");
+                Map<String, Object> response = new HashMap<>();
+                response.put("word1", request.getWord1());
+                response.put("word2", request.getWord2());
+                response.put("similarity", similarity);
+                response.put("model", "custom");
             
-            return ResponseEntity.ok(response);
+                return ResponseEntity.ok(response);
+            }
+        } catch (AdmissionRejectedException e) {
+            return shed(e);
+        } catch (InterruptedException e) {
+            return shedInterrupted();
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
                     .body(Map.of("error", e.getMessage()));
@@ -130,19 +236,26 @@ public class EmbeddingController {
     @PostMapping("/similarity/generic")
     public ResponseEntity<Map<String, Object>> calculateGenericSimilarity(@RequestBody SimilarityRequest request) {
         try {
-            float similarity = huggingFaceService.calculateGenericSimilarity(
-                request.getWord1(), 
-                request.getWord2()
-            );
+            ConcurrencyLimiter.Permit permit = admissionControl.admit(AdmissionControl.GENERIC);
+            try (permit) {
+                float similarity = huggingFaceService.calculateGenericSimilarity(
+                    request.getWord1(), 
+                    request.getWord2()
+                );
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("word1", request.getWord1());
-            response.put("word2", request.getWord2());
-            response.put("similarity", similarity);
-            response.put("model", "generic");
-            response.put("modelInfo", huggingFaceService.getModelInfo());
+                Map<String, Object> response = new HashMap<>();
+                response.put("word1", request.getWord1());
+                response.put("word2", request.getWord2());
+                response.put("similarity", similarity);
+                response.put("model", "generic");
+                response.put("modelInfo", huggingFaceService.getModelInfo());
             
-            return ResponseEntity.ok(response);
+                return ResponseEntity.ok(response);
+            }
+        } catch (AdmissionRejectedException e) {
+            return shed(e);
+        } catch (InterruptedException e) {
+            return shedInterrupted();
         } catch (Exception e) {
             return handleError("Failed to calculate generic similarity", e);
         }
@@ -154,74 +267,140 @@ public class EmbeddingController {
     @PostMapping("/similarity/compare")
     public ResponseEntity<Map<String, Object>> compareSimilarities(@RequestBody SimilarityRequest request) {
         try {
-            Map<String, Object> response = new HashMap<>();
-            response.put("word1", request.getWord1());
-            response.put("word2", request.getWord2());
+            ConcurrencyLimiter.Permit permit = admissionControl.admit(AdmissionControl.COMPARE);
+            try (permit) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("word1", request.getWord1());
+                response.put("word2", request.getWord2());
             
-            // Custom model similarity
-            try {
-                float customSim = embeddingService.calculateCustomSimilarity(
-                    request.getWord1(), 
-                    request.getWord2()
-                );
-                response.put("customSimilarity", customSim);
-            } catch (Exception e) {
-                response.put("customSimilarity", null);
-                response.put("customError", e.getMessage());
-            }
+                // Custom model similarity
+                try {
+                    float customSim = embeddingService.calculateCustomSimilarity(
+                        request.getWord1(), 
+                        request.getWord2()
+                    );
+                    response.put("customSimilarity", customSim);
+                } catch (Exception e) {
+                    response.put("customSimilarity", null);
+                    response.put("customError", e.getMessage());
+                }
             
-            // Generic model similarity
-            try {
-                float genericSim = huggingFaceService.calculateGenericSimilarity(
-                    request.getWord1(), 
-                    request.getWord2()
-                );
-                //genericSim=2f;
-                response.put("genericSimilarity", genericSim);
-            } catch (Exception e) {
-                response.put("genericSimilarity", null);
-                response.put("genericError", e.getMessage());
-            }
+                // Generic model similarity
+                try {
+                    float genericSim = huggingFaceService.calculateGenericSimilarity(
+                        request.getWord1(), 
+                        request.getWord2()
+                    );
+                    //genericSim=2f;
+                    response.put("genericSimilarity", genericSim);
+                } catch (Exception e) {
+                    response.put("genericSimilarity", null);
+                    response.put("genericError", e.getMessage());
+                }
             
-            // Calculate difference if both succeeded
-            if (response.containsKey("customSimilarity") && response.containsKey("genericSimilarity") &&
-                response.get("customSimilarity") != null && response.get("genericSimilarity") != null) {
-                float diff = (float) response.get("customSimilarity") - (float) response.get("genericSimilarity");
-                response.put("difference", diff);
-                response.put("customIsHigher", diff > 0);
-            }
+                // Calculate difference if both succeeded
+                if (response.containsKey("customSimilarity") && response.containsKey("genericSimilarity") &&
+                    response.get("customSimilarity") != null && response.get("genericSimilarity") != null) {
+                    float diff = (float) response.get("customSimilarity") - (float) response.get("genericSimilarity");
+                    response.put("difference", diff);
+                    response.put("customIsHigher", diff > 0);
+                }
             
-            return ResponseEntity.ok(response);
+                return ResponseEntity.ok(response);
+            }
+        } catch (AdmissionRejectedException e) {
+            return shed(e);
+        } catch (InterruptedException e) {
+            return shedInterrupted();
         } catch (Exception e) {
             return handleError("Failed to compare similarities", e);
         }
     }
     
     /**
-     * Get embedding vector for a word
+     * Get embedding vector for a word, as JSON or, depending on the Accept
+     * header, as raw little-endian floats or a protobuf message
      */
-    @GetMapping("/embedding/{word}")
-    public ResponseEntity<Map<String, Object>> getEmbedding(@PathVariable String word) {
+    @GetMapping(value = "/embedding/{word}", produces = {
+            MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            "application/x-protobuf"})
+    public ResponseEntity<?> getEmbedding(@PathVariable String word) {
         try {
             float[] embedding = embeddingService.getEmbedding(word);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("word", word);
-            response.put("embedding", embedding);
-            response.put("dimension", embedding.length);
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(new EmbeddingResponse(word, embedding));
         } catch (IllegalStateException e) {
+            // Errors are always JSON, whatever format was asked for
             return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .contentType(MediaType.APPLICATION_JSON)
                     .body(Map.of("error", e.getMessage()));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .contentType(MediaType.APPLICATION_JSON)
                     .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return handleError("Failed to get embedding", e);
         }
     }
     
+    /**
+     * Stream every word's vector in one response, without building it in
+     * memory. Formats: ndjson (default), word2vec, word2vec-bin, f32 (raw
+     * float32 matrix) and vocab (the word list matching f32 rows).
+     */
+    @GetMapping("/embeddings/export")
+    public ResponseEntity<StreamingResponseBody> exportEmbeddings(@RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            EmbeddingExporter.Format exportFormat = EmbeddingExporter.Format.parse(format);
+            EmbeddingExporter exporter = embeddingService.getExporter();
+            StreamingResponseBody body = out -> exporter.write(exportFormat, out);
+            
+            return ResponseEntity.ok()
+                    .contentType(exportMediaType(exportFormat))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(exportFileName(exportFormat)).build().toString())
+                    .header("X-Embedding-Rows", String.valueOf(exporter.getRows()))
+                    .header("X-Embedding-Dimension", String.valueOf(exporter.getDimension()))
+                    .body(body);
+        } catch (IllegalStateException e) {
+            return streamedError(HttpStatus.PRECONDITION_FAILED, Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return streamedError(HttpStatus.BAD_REQUEST, Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Controller error - Failed to export embeddings: {}", e.getMessage(), e);
+            return streamedError(HttpStatus.INTERNAL_SERVER_ERROR,
+                    Map.of("error", "Failed to export embeddings", "details", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    /**
+     * JSON error for endpoints whose success body is streamed; the return
+     * type has to stay StreamingResponseBody for Spring to stream at all
+     */
+    private ResponseEntity<StreamingResponseBody> streamedError(HttpStatus status, Map<String, Object> error) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> out.write(objectMapper.writeValueAsBytes(error)));
+    }
+    
+    private static MediaType exportMediaType(EmbeddingExporter.Format format) {
+        return switch (format) {
+            case NDJSON -> MediaType.parseMediaType("application/x-ndjson");
+            case WORD2VEC_TEXT, VOCABULARY -> new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+            case WORD2VEC_BINARY, FLOAT32 -> MediaType.APPLICATION_OCTET_STREAM;
+        };
+    }
+    
+    private static String exportFileName(EmbeddingExporter.Format format) {
+        return switch (format) {
+            case NDJSON -> "embeddings.ndjson";
+            case WORD2VEC_TEXT -> "embeddings.txt";
+            case WORD2VEC_BINARY -> "embeddings.bin";
+            case FLOAT32 -> "embeddings.f32";
+            case VOCABULARY -> "embeddings.vocab.txt";
+        };
+    }
+    
     /**
      * Health check endpoint
      */
@@ -233,6 +412,29 @@ public class EmbeddingController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Reject a request that admission control shed: 429 when the wait queue
+     * was full, 503 when it waited too long, both with Retry-After
+     */
+    private ResponseEntity<Map<String, Object>> shed(AdmissionRejectedException e) {
+        HttpStatus status = e.isQueueFull() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+    
+    /**
+     * Give up on a request whose wait for admission was interrupted, which
+     * happens when the server is shutting down; the client may retry
+     * against another instance or once this one is back
+     */
+    private ResponseEntity<Map<String, Object>> shedInterrupted() {
+        Thread.currentThread().interrupt();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "Interrupted while waiting for capacity, try again later"));
+    }
+    
     /**
      * Helper method to handle errors
      */
@@ -241,6 +443,8 @@ public class EmbeddingController {
         Map<String, Object> error = new HashMap<>();
         error.put("error", message);
         error.put("details", e.getMessage());
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(error);
     }
 }
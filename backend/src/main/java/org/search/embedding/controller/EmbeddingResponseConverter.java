@@ -0,0 +1,138 @@
+package org.search.embedding.controller;
+
+import org.search.embedding.dto.EmbeddingResponse;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes embedding vectors without JSON number formatting, for clients that
+ * send a matching Accept header:
+ * <ul>
+ *   <li>{@code application/octet-stream}: 8-byte little-endian header
+ *       (magic {@code "EMB1"}, int32 dimension) followed by the vector as
+ *       little-endian float32 values</li>
+ *   <li>{@code application/x-protobuf}: the {@code Embedding} message from
+ *       {@code proto/embedding.proto}, encoded by hand since the message is
+ *       two fields and does not warrant the protobuf runtime</li>
+ * </ul>
+ * JSON stays the default; Spring picks this converter only when the client
+ * asks for one of these types.
+ */
+@Component
+public class EmbeddingResponseConverter extends AbstractHttpMessageConverter<EmbeddingResponse> {
+
+    public static final MediaType APPLICATION_PROTOBUF = MediaType.parseMediaType("application/x-protobuf");
+
+    static final int MAGIC = 0x31424D45; // "EMB1" read as little-endian bytes
+    static final int HEADER_BYTES = 8;
+
+    private static final int WORD_FIELD_TAG = (1 << 3) | 2;   // field 1, length-delimited
+    private static final int VALUES_FIELD_TAG = (2 << 3) | 2; // field 2, packed
+
+    public EmbeddingResponseConverter() {
+        super(MediaType.APPLICATION_OCTET_STREAM, APPLICATION_PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return EmbeddingResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected EmbeddingResponse readInternal(Class<? extends EmbeddingResponse> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Embedding responses are write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(EmbeddingResponse response, MediaType contentType) {
+        if (isProtobuf(contentType)) {
+            return (long) protobufSize(response.getWord().getBytes(StandardCharsets.UTF_8).length,
+                    response.getDimension());
+        }
+        return (long) HEADER_BYTES + (long) response.getDimension() * Float.BYTES;
+    }
+
+    @Override
+    protected void writeInternal(EmbeddingResponse response, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(encode(response, outputMessage.getHeaders().getContentType()));
+    }
+
+    static byte[] encode(EmbeddingResponse response, MediaType contentType) {
+        if (isProtobuf(contentType)) {
+            return encodeProtobuf(response);
+        }
+        return encodeRaw(response.getEmbedding());
+    }
+
+    private static boolean isProtobuf(MediaType contentType) {
+        return contentType != null && APPLICATION_PROTOBUF.isCompatibleWith(contentType);
+    }
+
+    static byte[] encodeRaw(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + vector.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(vector.length);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    static byte[] encodeProtobuf(EmbeddingResponse response) {
+        byte[] word = response.getWord().getBytes(StandardCharsets.UTF_8);
+        int valueBytes = response.getDimension() * Float.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(protobufSize(word.length, response.getDimension()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) WORD_FIELD_TAG);
+        putVarint(buffer, word.length);
+        buffer.put(word);
+        // proto3 omits empty repeated fields
+        if (valueBytes > 0) {
+            buffer.put((byte) VALUES_FIELD_TAG);
+            putVarint(buffer, valueBytes);
+            for (float value : response.getEmbedding()) {
+                buffer.putFloat(value);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static int protobufSize(int wordBytes, int dimension) {
+        int valueBytes = dimension * Float.BYTES;
+        int size = 1 + varintSize(wordBytes) + wordBytes;
+        if (valueBytes > 0) {
+            size += 1 + varintSize(valueBytes) + valueBytes;
+        }
+        return size;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
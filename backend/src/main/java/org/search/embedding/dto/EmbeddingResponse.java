@@ -0,0 +1,28 @@
+package org.search.embedding.dto;
+
+/**
+ * Response DTO for a word's embedding vector. Rendered as JSON by default,
+ * or in binary form when the client asks for it (see
+ * {@code EmbeddingResponseConverter}).
+ */
+public class EmbeddingResponse {
+    private final String word;
+    private final float[] embedding;
+    
+    public EmbeddingResponse(String word, float[] embedding) {
+        this.word = word;
+        this.embedding = embedding;
+    }
+    
+    public String getWord() {
+        return word;
+    }
+    
+    public float[] getEmbedding() {
+        return embedding;
+    }
+    
+    public int getDimension() {
+        return embedding.length;
+    }
+}
@@ -0,0 +1,279 @@
+package org.search.embedding.ingest;
+
+import org.search.embedding.model.SiameseEmbedding.TrainingPair;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sparse co-occurrence matrix over interned word IDs. Every occurrence of a
+ * pair within the window adds its inverse-distance weight to the pair's
+ * entry, so the result holds one entry per unique pair regardless of how
+ * often the pair occurs in the corpus.
+ *
+ * Similarity labels are derived at the end as positive normalized PMI:
+ * npmi(a, b) = log(p(a,b) / (p(a) p(b))) / -log p(a,b), clamped to [0, 1],
+ * with p(a) taken from the weighted row sums of the symmetric matrix.
+ * Token counts per word are kept alongside for frequency-based filtering.
+ */
+public class CoOccurrenceAccumulator implements PairWindow.PairSink {
+
+    private final WordInterner words = new WordInterner();
+    private LongFloatHashMap weights = new LongFloatHashMap();
+    private int[] counts = new int[256];
+    private long tokenCount = 0;
+
+    public WordInterner getWords() {
+        return words;
+    }
+
+    @Override
+    public void accept(int word1, int word2, float weight) {
+        weights.addTo(PairKey.pack(word1, word2), weight);
+    }
+
+    @Override
+    public void onWord(int word) {
+        addCount(word, 1);
+    }
+
+    private void addCount(int word, int delta) {
+        if (word >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(word + 1, counts.length * 2));
+        }
+        counts[word] += delta;
+        tokenCount += delta;
+    }
+
+    /**
+     * Number of tokens seen for a word
+     */
+    public int getCount(int word) {
+        return word < counts.length ? counts[word] : 0;
+    }
+
+    /**
+     * Number of kept tokens seen in total
+     */
+    public long getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Fold another accumulator into this one, translating its word IDs
+     */
+    public void mergeFrom(CoOccurrenceAccumulator other) {
+        int[] remap = new int[other.words.size()];
+        for (int id = 0; id < remap.length; id++) {
+            remap[id] = words.intern(other.words.word(id));
+            int count = other.getCount(id);
+            if (count > 0) {
+                addCount(remap[id], count);
+            }
+        }
+        other.weights.forEach((key, weight) ->
+                accept(remap[PairKey.first(key)], remap[PairKey.second(key)], weight));
+    }
+
+    /**
+     * Accumulated weight of a pair, 0 if it never occurred
+     */
+    public float getWeight(int word1, int word2) {
+        return weights.get(PairKey.pack(word1, word2), 0f);
+    }
+
+    public int size() {
+        return weights.size();
+    }
+
+    /**
+     * Visit every pair key with its accumulated weight
+     */
+    public void forEach(LongFloatHashMap.EntryConsumer consumer) {
+        weights.forEach(consumer);
+    }
+
+    /**
+     * Approximate heap footprint in bytes: the pair table, the token counts
+     * and the interned words
+     */
+    public long getMemoryBytes() {
+        return weights.getMemoryBytes() + (long) counts.length * Integer.BYTES + words.getMemoryBytes();
+    }
+
+    /**
+     * Drop every pair, count and word. The word table is cleared in place,
+     * so a PairWindow feeding this accumulator can keep going.
+     */
+    public void clear() {
+        words.clear();
+        weights = new LongFloatHashMap();
+        counts = new int[256];
+        tokenCount = 0;
+    }
+
+    /**
+     * Serialize the word table with token counts and the pair weights.
+     * Words are written as a varint byte length and raw UTF-8, so a token
+     * of any length round-trips.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(words.size());
+        for (int id = 0; id < words.size(); id++) {
+            writeString(out, words.word(id));
+            out.writeInt(getCount(id));
+        }
+        out.writeInt(weights.size());
+        IOException[] failure = {null};
+        weights.forEach((key, weight) -> {
+            if (failure[0] != null) {
+                return;
+            }
+            try {
+                out.writeInt(PairKey.first(key));
+                out.writeInt(PairKey.second(key));
+                out.writeFloat(weight);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    /**
+     * Read an accumulator written by {@link #writeTo(DataOutput)}
+     */
+    public static CoOccurrenceAccumulator readFrom(DataInput in) throws IOException {
+        CoOccurrenceAccumulator accumulator = new CoOccurrenceAccumulator();
+        int wordCount = in.readInt();
+        for (int i = 0; i < wordCount; i++) {
+            int id = accumulator.words.intern(readString(in));
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupt word count for " + accumulator.words.word(id));
+            }
+            accumulator.addCount(id, count);
+        }
+        int pairCount = in.readInt();
+        for (int i = 0; i < pairCount; i++) {
+            int word1 = in.readInt();
+            int word2 = in.readInt();
+            float weight = in.readFloat();
+            if (word1 < 0 || word1 >= wordCount || word2 < 0 || word2 >= wordCount) {
+                throw new IOException("Corrupt pair record at " + i);
+            }
+            accumulator.accept(word1, word2, weight);
+        }
+        return accumulator;
+    }
+
+    private static void writeString(DataOutput out, String word) throws IOException {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        while ((length & ~0x7F) != 0) {
+            out.writeByte((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.writeByte(length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28) {
+                throw new IOException("Corrupt word length");
+            }
+            byte b = in.readByte();
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (length < 0) {
+            throw new IOException("Corrupt word length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Materialize one training pair per unique pair, labelled by NPMI
+     */
+    public List<TrainingPair> toTrainingPairs() {
+        return toTrainingPairs(PairFilter.none());
+    }
+
+    /**
+     * Materialize the pairs the filter keeps, labelled by NPMI over the
+     * full matrix so dropped pairs still count towards word probabilities
+     */
+    public List<TrainingPair> toTrainingPairs(PairFilter filter) {
+        List<TrainingPair> result = new ArrayList<>(weights.size());
+        try {
+            writeTrainingPairs(filter, (word1, word2, similarity) ->
+                    result.add(new TrainingPair(word1, word2, similarity)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // adding to a list does not fail
+        }
+        return result;
+    }
+
+    /**
+     * Stream the pairs the filter keeps to a consumer, labelled as in
+     * {@link #toTrainingPairs(PairFilter)}
+     */
+    public void writeTrainingPairs(PairFilter filter, TrainingSetFile.PairConsumer out) throws IOException {
+        filter.setTotalTokens(tokenCount);
+        double[] rowSums = new double[words.size()];
+        double[] total = {0};
+        weights.forEach((key, weight) -> {
+            rowSums[PairKey.first(key)] += weight;
+            rowSums[PairKey.second(key)] += weight;
+            total[0] += 2.0 * weight;
+        });
+
+        IOException[] failure = {null};
+        weights.forEach((key, weight) -> {
+            if (failure[0] != null) {
+                return;
+            }
+            int word1 = PairKey.first(key);
+            int word2 = PairKey.second(key);
+            String first = words.word(word1);
+            String second = words.word(word2);
+            if (filter.keep(first, getCount(word1), second, getCount(word2))) {
+                try {
+                    out.add(first, second, npmi(weight, rowSums[word1], rowSums[word2], total[0]));
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    /**
+     * Positive normalized PMI of a cell in a symmetric co-occurrence matrix
+     */
+    static float npmi(double joint, double row1, double row2, double total) {
+        double pJoint = joint / total;
+        if (pJoint >= 1.0) {
+            return 1.0f;
+        }
+        double pmi = Math.log(joint * total / (row1 * row2));
+        double normalized = pmi / -Math.log(pJoint);
+        return (float) Math.max(0.0, Math.min(1.0, normalized));
+    }
+}
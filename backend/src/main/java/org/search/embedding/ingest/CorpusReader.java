@@ -0,0 +1,170 @@
+package org.search.embedding.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Opens corpus files of every supported format as a token stream:
+ * plain text (.txt), JSON Lines (.jsonl, one record per line, text taken
+ * from a configurable top-level field), either of those gzip-compressed
+ * (.gz), and zip archives of them. Everything is decoded on the fly, so no
+ * archive is extracted to disk or held in memory. Each text file, archive
+ * entry and JSONL record ends with a sentence boundary, so no pairs span
+ * two documents.
+ */
+public class CorpusReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String jsonTextField;
+
+    public CorpusReader(String jsonTextField) {
+        this.jsonTextField = jsonTextField;
+    }
+
+    /**
+     * Find all supported documents under a folder, recursively, in path order
+     */
+    public static List<Path> listDocuments(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(CorpusReader::isSupported)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Whether a file name has one of the supported formats
+     */
+    public static boolean isSupported(Path file) {
+        String name = stripGzip(file.getFileName().toString().toLowerCase(Locale.ROOT));
+        return name.endsWith(".txt") || name.endsWith(".jsonl") || (name.endsWith(".zip") && !isGzip(file));
+    }
+
+    /**
+     * Stream every document in the file through the scanner
+     */
+    public void scan(Path file, TokenScanner scanner, TokenScanner.TokenHandler handler) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            if (name.endsWith(".zip")) {
+                scanZip(in, scanner, handler);
+            } else if (isGzip(file)) {
+                scanEntry(stripGzip(name), new GZIPInputStream(in), scanner, handler);
+            } else {
+                scanEntry(name, in, scanner, handler);
+            }
+        }
+    }
+
+    private void scanZip(InputStream in, TokenScanner scanner, TokenScanner.TokenHandler handler) throws IOException {
+        ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            String name = entry.getName().toLowerCase(Locale.ROOT);
+            if (entry.isDirectory()) {
+                continue;
+            }
+            InputStream entryStream = new NonClosingInputStream(zip);
+            if (name.endsWith(".gz")) {
+                entryStream = new GZIPInputStream(entryStream);
+                name = stripGzip(name);
+            }
+            if (name.endsWith(".txt") || name.endsWith(".jsonl")) {
+                scanEntry(name, entryStream, scanner, handler);
+            }
+        }
+    }
+
+    private void scanEntry(String name, InputStream in, TokenScanner scanner, TokenScanner.TokenHandler handler)
+            throws IOException {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder());
+        if (name.endsWith(".jsonl")) {
+            scanJsonLines(new BufferedReader(reader), scanner, handler);
+        } else {
+            scanner.scan(reader, handler);
+        }
+    }
+
+    private void scanJsonLines(BufferedReader reader, TokenScanner scanner, TokenScanner.TokenHandler handler)
+            throws IOException {
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            String text = extractText(line, lineNumber);
+            if (text != null) {
+                scanner.scan(text, handler);
+            }
+        }
+    }
+
+    /**
+     * Pull the configured top-level string field out of one JSON record
+     */
+    private String extractText(String line, int lineNumber) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("JSONL line " + lineNumber + " is not an object");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                token = parser.nextToken();
+                if (field.equals(jsonTextField) && token == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (JsonProcessingException e) {
+            throw new IOException("Malformed JSONL line " + lineNumber + ": " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static boolean isGzip(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    private static String stripGzip(String name) {
+        return name.endsWith(".gz") ? name.substring(0, name.length() - 3) : name;
+    }
+
+    /**
+     * Lets an entry reader be closed without closing the enclosing zip stream
+     */
+    private static class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+            // The zip stream moves on to the next entry instead
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.search.embedding.ingest;
+
+import org.search.embedding.model.SiameseEmbedding.TrainingPair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary statistics over a training set, gathered in one pass. Word
+ * frequencies (the number of pairs a word takes part in) are primitive
+ * counters indexed by interned word ID, and the most frequent words are
+ * picked with a bounded min-heap instead of sorting the whole vocabulary.
+ *
+ * Instances are not thread-safe; build one, then publish its snapshot.
+ */
+public class CorpusStats {
+
+    private final WordInterner words = new WordInterner();
+    private int[] frequencies = new int[1024];
+    private long totalPairs = 0;
+    private double similaritySum = 0;
+    private float maxSimilarity = 0f;
+    private float minSimilarity = 1f;
+
+    /**
+     * Gather statistics over all pairs in one pass
+     */
+    public static CorpusStats of(Iterable<TrainingPair> pairs) {
+        CorpusStats stats = new CorpusStats();
+        for (TrainingPair pair : pairs) {
+            stats.add(pair.word1, pair.word2, pair.similarity);
+        }
+        return stats;
+    }
+
+    public void add(String word1, String word2, float similarity) {
+        count(words.intern(word1));
+        count(words.intern(word2));
+        totalPairs++;
+        similaritySum += similarity;
+        maxSimilarity = Math.max(maxSimilarity, similarity);
+        minSimilarity = Math.min(minSimilarity, similarity);
+    }
+
+    private void count(int word) {
+        if (word >= frequencies.length) {
+            frequencies = Arrays.copyOf(frequencies, Math.max(word + 1, frequencies.length * 2));
+        }
+        frequencies[word]++;
+    }
+
+    public long getTotalPairs() {
+        return totalPairs;
+    }
+
+    public int getUniqueWords() {
+        return words.size();
+    }
+
+    /**
+     * The k most frequent words, most frequent first; ties go to the
+     * alphabetically earlier word
+     */
+    public List<String> topWords(int k) {
+        int[] heap = new int[Math.min(k, words.size())];
+        int size = 0;
+        for (int word = 0; word < words.size(); word++) {
+            if (size < heap.length) {
+                heap[size++] = word;
+                siftUp(heap, size - 1);
+            } else if (heap.length > 0 && ranksAbove(word, heap[0])) {
+                heap[0] = word;
+                siftDown(heap, size);
+            }
+        }
+
+        // Popping the min-heap yields ascending rank; fill from the back
+        String[] result = new String[size];
+        for (int i = size - 1; i >= 0; i--) {
+            int word = heap[0];
+            result[i] = words.word(word) + " (" + frequencies[word] + ")";
+            heap[0] = heap[i];
+            siftDown(heap, i);
+        }
+        return Arrays.asList(result);
+    }
+
+    private boolean ranksAbove(int a, int b) {
+        if (frequencies[a] != frequencies[b]) {
+            return frequencies[a] > frequencies[b];
+        }
+        return words.word(a).compareTo(words.word(b)) < 0;
+    }
+
+    private void siftUp(int[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksAbove(heap[parent], heap[index])) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int lowest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && ranksAbove(heap[lowest], heap[left])) {
+                lowest = left;
+            }
+            if (right < size && ranksAbove(heap[lowest], heap[right])) {
+                lowest = right;
+            }
+            if (lowest == index) {
+                return;
+            }
+            swap(heap, index, lowest);
+            index = lowest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+
+    /**
+     * Immutable view in the shape of the stats endpoint
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalPairs", (int) Math.min(totalPairs, Integer.MAX_VALUE));
+        stats.put("uniqueWords", words.size());
+        stats.put("avgSimilarity", totalPairs == 0 ? 0f : (float) (similaritySum / totalPairs));
+        stats.put("maxSimilarity", maxSimilarity);
+        stats.put("minSimilarity", minSimilarity);
+        stats.put("topWords", Collections.unmodifiableList(new ArrayList<>(topWords(10))));
+        return Collections.unmodifiableMap(stats);
+    }
+}
@@ -0,0 +1,264 @@
+package org.search.embedding.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * On-disk cache of per-document co-occurrence tables, one binary file per
+ * source document, named after the hash of its absolute path. Each entry
+ * records the source size, modification time and SHA-256 of its content.
+ * An unchanged size and mtime is trusted as a hit. Otherwise the content
+ * hash decides, so touched-but-identical files are not reprocessed.
+ * The table itself is followed by a CRC32C, and an entry whose body does
+ * not match it is treated as a miss.
+ */
+public class IngestionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionCache.class);
+
+    private static final int MAGIC = 0x49434331; // "ICC1"
+    private static final int FORMAT_VERSION = 4;
+    private static final String SUFFIX = ".cooc";
+
+    /**
+     * Builds the table for a document on a cache miss. A loader that has
+     * already spilled the document elsewhere returns null, and nothing is
+     * cached for it.
+     */
+    public interface Loader {
+        CoOccurrenceAccumulator load(Path file) throws IOException;
+    }
+
+    private final Path directory;
+    private final int paramsFingerprint;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param directory cache directory, created if missing
+     * @param paramsFingerprint hash of the ingestion settings; entries
+     *                          written with different settings are ignored
+     */
+    public IngestionCache(Path directory, int paramsFingerprint) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.paramsFingerprint = paramsFingerprint;
+    }
+
+    /**
+     * Return the cached table for a document, or build and store it.
+     * Returns null, and drops any stale entry, when the loader does.
+     */
+    public CoOccurrenceAccumulator getOrLoad(Path file, Loader loader) throws IOException {
+        Path source = file.toAbsolutePath().normalize();
+        Path entry = entryPath(source);
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+
+        byte[] contentHash = null;
+        if (Files.exists(entry)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+                Header header = Header.read(in);
+                if (header != null && header.paramsFingerprint == paramsFingerprint
+                        && header.source.equals(source.toString())) {
+                    boolean unchanged = header.size == size && header.modified == modified;
+                    if (!unchanged) {
+                        contentHash = sha256(source);
+                        unchanged = Arrays.equals(contentHash, header.contentHash);
+                    }
+                    if (unchanged) {
+                        CoOccurrenceAccumulator cached = readBody(in);
+                        hits.incrementAndGet();
+                        if (contentHash != null) {
+                            // Touched but identical: refresh the stored mtime so the next run skips hashing
+                            in.close();
+                            store(entry, new Header(paramsFingerprint, header.source, size, modified, contentHash), cached);
+                        }
+                        return cached;
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable cache entry {}: {}", entry, e.getMessage());
+            }
+        }
+
+        misses.incrementAndGet();
+        if (contentHash == null) {
+            contentHash = sha256(source);
+        }
+        CoOccurrenceAccumulator accumulator = loader.load(source);
+        if (accumulator == null) {
+            Files.deleteIfExists(entry);
+            return null;
+        }
+        store(entry, new Header(paramsFingerprint, source.toString(), size, modified, contentHash), accumulator);
+        return accumulator;
+    }
+
+    /**
+     * Delete entries whose source document no longer exists
+     */
+    public int prune() throws IOException {
+        int removed = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path entry : entries) {
+                Header header;
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+                    header = Header.read(in);
+                } catch (IOException e) {
+                    header = null;
+                }
+                if (header == null || !Files.exists(Paths.get(header.source))) {
+                    Files.deleteIfExists(entry);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    private void store(Path entry, Header header, CoOccurrenceAccumulator accumulator) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, "entry", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                header.write(out);
+                CRC32C crc = new CRC32C();
+                DataOutputStream body = new DataOutputStream(new CheckedOutputStream(out, crc));
+                accumulator.writeTo(body);
+                body.flush();
+                out.writeLong(crc.getValue());
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // A failed write only costs a reprocess next time
+            logger.warn("Could not write cache entry {}: {}", entry, e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // best effort
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the table after the header and verify it against the trailing
+     * checksum before decoding any of it
+     */
+    private static CoOccurrenceAccumulator readBody(DataInputStream in) throws IOException {
+        byte[] body = in.readAllBytes();
+        int length = body.length - Long.BYTES;
+        if (length < 0) {
+            throw new IOException("Truncated cache entry");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(body, 0, length);
+        long expected = new DataInputStream(new ByteArrayInputStream(body, length, Long.BYTES)).readLong();
+        if (crc.getValue() != expected) {
+            throw new IOException("Cache entry checksum mismatch");
+        }
+        ByteArrayInputStream table = new ByteArrayInputStream(body, 0, length);
+        CoOccurrenceAccumulator accumulator = CoOccurrenceAccumulator.readFrom(new DataInputStream(table));
+        if (table.available() != 0) {
+            throw new IOException("Trailing bytes after cached table");
+        }
+        return accumulator;
+    }
+
+    private Path entryPath(Path source) {
+        byte[] digest = digest().digest(source.toString().getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(HexFormat.of().formatHex(digest, 0, 16) + SUFFIX);
+    }
+
+    private static byte[] sha256(Path file) throws IOException {
+        MessageDigest digest = digest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static class Header {
+        final int paramsFingerprint;
+        final String source;
+        final long size;
+        final long modified;
+        final byte[] contentHash;
+
+        Header(int paramsFingerprint, String source, long size, long modified, byte[] contentHash) {
+            this.paramsFingerprint = paramsFingerprint;
+            this.source = source;
+            this.size = size;
+            this.modified = modified;
+            this.contentHash = contentHash;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(paramsFingerprint);
+            out.writeUTF(source);
+            out.writeLong(size);
+            out.writeLong(modified);
+            out.write(contentHash);
+        }
+
+        /**
+         * Read a header, or return null if the entry has another format
+         */
+        static Header read(DataInputStream in) throws IOException {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int paramsFingerprint = in.readInt();
+            String source = in.readUTF();
+            long size = in.readLong();
+            long modified = in.readLong();
+            byte[] contentHash = new byte[32];
+            in.readFully(contentHash);
+            return new Header(paramsFingerprint, source, size, modified, contentHash);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.search.embedding.ingest;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative long keys to float values,
+ * with linear probing and no boxing. Used for pair keys packed by
+ * {@link PairKey}.
+ */
+public class LongFloatHashMap {
+
+    private static final long EMPTY = -1L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * Receives map entries during iteration
+     */
+    public interface EntryConsumer {
+        void accept(long key, float value);
+    }
+
+    private long[] keys;
+    private float[] values;
+    private int size = 0;
+    private int resizeAt;
+
+    public LongFloatHashMap() {
+        this(1024);
+    }
+
+    public LongFloatHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Add a delta to the value for a key, starting from 0 if it is absent
+     */
+    public void addTo(long key, float delta) {
+        int slot = findSlot(key);
+        if (keys[slot] == EMPTY) {
+            insert(slot, key, delta);
+        } else {
+            values[slot] += delta;
+        }
+    }
+
+    /**
+     * Get the value for a key, or the default if it is absent
+     */
+    public float get(long key, float defaultValue) {
+        int slot = findSlot(key);
+        return keys[slot] == EMPTY ? defaultValue : values[slot];
+    }
+
+    public boolean containsKey(long key) {
+        return keys[findSlot(key)] != EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visit every entry in unspecified order
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Heap footprint of the backing arrays in bytes
+     */
+    public long getMemoryBytes() {
+        return (long) keys.length * Long.BYTES + (long) values.length * Float.BYTES;
+    }
+
+    private int findSlot(long key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Keys must be non-negative: " + key);
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, long key, float value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        float[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new float[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
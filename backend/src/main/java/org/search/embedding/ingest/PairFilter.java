@@ -0,0 +1,103 @@
+package org.search.embedding.ingest;
+
+/**
+ * Thins out the aggregated pair list before training. Pairs with a word
+ * seen fewer than minCount times are dropped, which also removes that word
+ * from the vocabulary. Pairs of frequent words are then subsampled the way
+ * word2vec subsamples tokens: a word with corpus frequency f is kept with
+ * probability min(1, sqrt(t / f) + t / f) for threshold t, and a pair
+ * survives with the product of its two words' probabilities.
+ *
+ * The random draw is a hash of the two words, so the same corpus always
+ * yields the same training set regardless of word ID assignment. Instances
+ * count what they drop and are not thread-safe.
+ */
+public class PairFilter {
+
+    private final long minCount;
+    private final double sampleThreshold;
+    private long totalTokens = 0;
+
+    private long kept = 0;
+    private long droppedRare = 0;
+    private long droppedSampled = 0;
+
+    /**
+     * @param minCount        minimum token count for a word to be kept (0 keeps all)
+     * @param sampleThreshold subsampling threshold t, or 0 to disable subsampling
+     */
+    public PairFilter(long minCount, double sampleThreshold) {
+        this.minCount = minCount;
+        this.sampleThreshold = sampleThreshold;
+    }
+
+    /**
+     * Pass-through filter that keeps every pair
+     */
+    public static PairFilter none() {
+        return new PairFilter(0, 0);
+    }
+
+    /**
+     * Set the corpus size that word frequencies are relative to
+     */
+    public void setTotalTokens(long totalTokens) {
+        this.totalTokens = totalTokens;
+    }
+
+    /**
+     * Decide whether a pair stays in the training set
+     */
+    public boolean keep(String word1, long count1, String word2, long count2) {
+        if (count1 < minCount || count2 < minCount) {
+            droppedRare++;
+            return false;
+        }
+        if (sampleThreshold > 0 && totalTokens > 0) {
+            double probability = keepProbability(count1) * keepProbability(count2);
+            if (probability < 1.0 && uniform(word1, word2) >= probability) {
+                droppedSampled++;
+                return false;
+            }
+        }
+        kept++;
+        return true;
+    }
+
+    /**
+     * word2vec keep probability of a word with the given token count
+     */
+    double keepProbability(long count) {
+        if (count <= 0) {
+            return 1.0;
+        }
+        double ratio = sampleThreshold / ((double) count / totalTokens);
+        return Math.min(1.0, Math.sqrt(ratio) + ratio);
+    }
+
+    /**
+     * Deterministic value in [0, 1) for an unordered pair of words
+     */
+    static double uniform(String word1, String word2) {
+        int h1 = word1.hashCode();
+        int h2 = word2.hashCode();
+        long h = ((long) Math.min(h1, h2) << 32) ^ (Math.max(h1, h2) & 0xFFFFFFFFL);
+        // SplitMix64 finalizer
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h = h ^ (h >>> 31);
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    public long getKept() {
+        return kept;
+    }
+
+    public long getDroppedRare() {
+        return droppedRare;
+    }
+
+    public long getDroppedSampled() {
+        return droppedSampled;
+    }
+}
@@ -0,0 +1,25 @@
+package org.search.embedding.ingest;
+
+/**
+ * Packs an unordered pair of word IDs into a single long, smaller ID in the
+ * high 32 bits, so (a, b) and (b, a) share a key.
+ */
+public final class PairKey {
+
+    private PairKey() {
+    }
+
+    public static long pack(int id1, int id2) {
+        int min = Math.min(id1, id2);
+        int max = Math.max(id1, id2);
+        return ((long) min << 32) | (max & 0xFFFFFFFFL);
+    }
+
+    public static int first(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int second(long key) {
+        return (int) key;
+    }
+}
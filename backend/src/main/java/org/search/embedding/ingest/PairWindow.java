@@ -0,0 +1,53 @@
+package org.search.embedding.ingest;
+
+/**
+ * Sliding window over the last few kept words of the current sentence.
+ * Each new word is interned and paired with every word still in the
+ * window, with similarity based on inverse distance.
+ */
+public class PairWindow implements TokenScanner.TokenHandler {
+
+    /**
+     * Receives pairs of word IDs, earlier word first
+     */
+    public interface PairSink {
+        void accept(int word1, int word2, float similarity);
+
+        /**
+         * Called once for every kept token, before its pairs
+         */
+        default void onWord(int word) {
+        }
+    }
+
+    private final WordInterner words;
+    private final PairSink sink;
+    private final int[] recent;
+    private int head = 0;
+    private int size = 0;
+
+    public PairWindow(WordInterner words, int maxDistance, PairSink sink) {
+        this.words = words;
+        this.sink = sink;
+        this.recent = new int[maxDistance];
+    }
+
+    @Override
+    public void onToken(char[] chars, int start, int length) {
+        int word = words.intern(chars, start, length);
+        sink.onWord(word);
+        int capacity = recent.length;
+        for (int distance = size; distance >= 1; distance--) {
+            int previous = recent[Math.floorMod(head - distance, capacity)];
+            sink.accept(previous, word, 1.0f / distance);
+        }
+        recent[head] = word;
+        head = (head + 1) % capacity;
+        size = Math.min(size + 1, capacity);
+    }
+
+    @Override
+    public void onSentenceEnd() {
+        size = 0;
+    }
+}
@@ -0,0 +1,278 @@
+package org.search.embedding.ingest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * External aggregation of co-occurrence weights for corpora whose pair table
+ * does not fit in memory. Accumulators are spilled as sorted runs of
+ * (pair key, weight) records over a global word table, and a k-way merge
+ * streams the runs back in key order, summing the weights of each pair so
+ * every unique pair comes out exactly once.
+ *
+ * Only the word table, token counts and per-word row sums stay in memory;
+ * they grow with the vocabulary rather than with the number of pairs. Row
+ * sums are kept up to date on every spill so NPMI labels can be computed
+ * during the merge.
+ */
+public class SpillingAggregator implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path tempParent;
+    private Path spillDir;
+    private final List<Path> runs = new ArrayList<>();
+    private final WordInterner words = new WordInterner();
+    private double[] rowSums = new double[1024];
+    private long[] counts = new long[1024];
+    private long tokenCount = 0;
+    private double total = 0;
+    private long spilledPairs = 0;
+    // Merging reads every run under the lock; a monitor would pin a virtual thread meanwhile
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @param tempParent directory for run files, or null for the system temp directory
+     */
+    public SpillingAggregator(Path tempParent) {
+        this.tempParent = tempParent;
+    }
+
+    /**
+     * Write an accumulator out as one sorted run. The accumulator is not
+     * modified and can be dropped afterwards.
+     */
+    public void spill(CoOccurrenceAccumulator accumulator) throws IOException {
+        lock.lock();
+        try {
+            spillRun(accumulator);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void spillRun(CoOccurrenceAccumulator accumulator) throws IOException {
+        WordInterner local = accumulator.getWords();
+        int[] remap = new int[local.size()];
+        for (int id = 0; id < remap.length; id++) {
+            remap[id] = words.intern(local.word(id));
+        }
+        if (words.size() > rowSums.length) {
+            rowSums = Arrays.copyOf(rowSums, Math.max(words.size(), rowSums.length * 2));
+            counts = Arrays.copyOf(counts, rowSums.length);
+        }
+        for (int id = 0; id < remap.length; id++) {
+            counts[remap[id]] += accumulator.getCount(id);
+        }
+        tokenCount += accumulator.getTokenCount();
+        if (accumulator.size() == 0) {
+            return;
+        }
+        int[] globalToLocal = new int[words.size()];
+        for (int id = 0; id < remap.length; id++) {
+            globalToLocal[remap[id]] = id;
+        }
+
+        long[] keys = new long[accumulator.size()];
+        int[] count = {0};
+        accumulator.forEach((key, weight) ->
+                keys[count[0]++] = PairKey.pack(remap[PairKey.first(key)], remap[PairKey.second(key)]));
+        Arrays.sort(keys);
+
+        if (spillDir == null) {
+            spillDir = tempParent != null
+                    ? Files.createTempDirectory(Files.createDirectories(tempParent), "cooc-spill")
+                    : Files.createTempDirectory("cooc-spill");
+        }
+        Path run = spillDir.resolve("run-" + runs.size() + ".bin");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE))) {
+            out.writeInt(keys.length);
+            for (long key : keys) {
+                int word1 = PairKey.first(key);
+                int word2 = PairKey.second(key);
+                float weight = accumulator.getWeight(globalToLocal[word1], globalToLocal[word2]);
+                rowSums[word1] += weight;
+                rowSums[word2] += weight;
+                total += 2.0 * weight;
+                out.writeLong(key);
+                out.writeFloat(weight);
+            }
+        }
+        runs.add(run);
+        spilledPairs += keys.length;
+    }
+
+    public int getRunCount() {
+        lock.lock();
+        try {
+            return runs.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Total records written across all runs, before deduplication
+     */
+    public long getSpilledPairs() {
+        lock.lock();
+        try {
+            return spilledPairs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of kept tokens across everything spilled
+     */
+    public long getTokenCount() {
+        lock.lock();
+        try {
+            return tokenCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public WordInterner getWords() {
+        return words;
+    }
+
+    /**
+     * Stream every unique pair with its total weight, in pair-key order
+     */
+    public void merge(PairWindow.PairSink sink) throws IOException {
+        lock.lock();
+        try {
+            mergeRuns(sink);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void mergeRuns(PairWindow.PairSink sink) throws IOException {
+        PriorityQueue<RunReader> heap = new PriorityQueue<>(Math.max(1, runs.size()),
+                Comparator.comparingLong(reader -> reader.key));
+        List<RunReader> readers = new ArrayList<>(runs.size());
+        try {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) {
+                    heap.add(reader);
+                }
+            }
+
+            while (!heap.isEmpty()) {
+                RunReader head = heap.poll();
+                long key = head.key;
+                double weight = head.weight;
+                if (head.advance()) {
+                    heap.add(head);
+                }
+                // Each run holds a key at most once, so equal keys sit at the heap top together
+                while (!heap.isEmpty() && heap.peek().key == key) {
+                    RunReader next = heap.poll();
+                    weight += next.weight;
+                    if (next.advance()) {
+                        heap.add(next);
+                    }
+                }
+                sink.accept(PairKey.first(key), PairKey.second(key), (float) weight);
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+        }
+    }
+
+    /**
+     * Merge the runs and stream the pairs the filter keeps, labelled by
+     * NPMI, to a consumer. Nothing per pair is kept in memory, so the
+     * consumer decides where the training set lives.
+     */
+    public void writeTrainingPairs(PairFilter filter, TrainingSetFile.PairConsumer out) throws IOException {
+        filter.setTotalTokens(tokenCount);
+        try {
+            merge((word1, word2, weight) -> {
+                String first = words.word(word1);
+                String second = words.word(word2);
+                if (filter.keep(first, counts[word1], second, counts[word2])) {
+                    try {
+                        out.add(first, second,
+                                CoOccurrenceAccumulator.npmi(weight, rowSums[word1], rowSums[word2], total));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Delete all run files
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            deleteRuns();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deleteRuns() throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        if (spillDir != null) {
+            Files.deleteIfExists(spillDir);
+            spillDir = null;
+        }
+    }
+
+    /**
+     * Sequential cursor over one run file
+     */
+    private static class RunReader {
+        final DataInputStream in;
+        int remaining;
+        long key;
+        float weight;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+            remaining = in.readInt();
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            key = in.readLong();
+            weight = in.readFloat();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.search.embedding.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Single-pass tokenizer that lowercases, splits and filters text one
+ * character at a time, reporting kept tokens as spans over a reused buffer.
+ *
+ * The rules match the original regex tokenizer: sentences end at any run of
+ * '.', '!' or '?'; tokens are maximal runs of lowercase letters, digits and
+ * '-'; tokens shorter than three characters, stop words and pure numbers are
+ * dropped. No strings are created for tokens, so callers decide whether a
+ * span needs to be materialized.
+ *
+ * Instances hold scan state and are not thread-safe; use one per worker.
+ */
+public class TokenScanner {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MIN_LENGTH = 3;
+
+    public static final String[] STOP_WORDS = {
+        "a", "an", "the", "is", "are", "was", "were", "in", "on", "at",
+        "to", "for", "of", "and", "or", "but", "with", "from", "by"
+    };
+
+    // Open-addressing table of stop words, probed by span hash
+    private static final char[][] STOP_WORD_TABLE = new char[64][];
+    private static final int STOP_WORD_MASK = STOP_WORD_TABLE.length - 1;
+
+    static {
+        for (String word : STOP_WORDS) {
+            char[] chars = word.toCharArray();
+            int slot = hash(chars, 0, chars.length) & STOP_WORD_MASK;
+            while (STOP_WORD_TABLE[slot] != null) {
+                slot = (slot + 1) & STOP_WORD_MASK;
+            }
+            STOP_WORD_TABLE[slot] = chars;
+        }
+    }
+
+    /**
+     * Receives kept tokens in document order. The span is only valid for
+     * the duration of the call.
+     */
+    public interface TokenHandler {
+        void onToken(char[] chars, int start, int length);
+
+        void onSentenceEnd();
+    }
+
+    private char[] token = new char[32];
+    private int length;
+    private boolean allDigits;
+    private boolean inTerminator;
+    private char[] readBuffer;
+
+    /**
+     * Scan everything readable from the reader. The reader is not closed.
+     */
+    public void scan(Reader reader, TokenHandler handler) throws IOException {
+        if (readBuffer == null) {
+            readBuffer = new char[BUFFER_SIZE];
+        }
+        reset();
+        int read;
+        while ((read = reader.read(readBuffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                accept(readBuffer[i], handler);
+            }
+        }
+        finish(handler);
+    }
+
+    /**
+     * Scan an in-memory piece of text
+     */
+    public void scan(CharSequence text, TokenHandler handler) {
+        reset();
+        for (int i = 0, n = text.length(); i < n; i++) {
+            accept(text.charAt(i), handler);
+        }
+        finish(handler);
+    }
+
+    private void reset() {
+        length = 0;
+        allDigits = true;
+        inTerminator = false;
+    }
+
+    private void accept(char c, TokenHandler handler) {
+        if (c == '.' || c == '!' || c == '?') {
+            flush(handler);
+            if (!inTerminator) {
+                handler.onSentenceEnd();
+                inTerminator = true;
+            }
+            return;
+        }
+        inTerminator = false;
+
+        // 'İ' lowercases to "i" plus a combining dot, which is then dropped as punctuation
+        if (c == 'İ') {
+            append('i');
+            allDigits = false;
+            flush(handler);
+            return;
+        }
+
+        char lower = c < 128 ? (c >= 'A' && c <= 'Z' ? (char) (c + 32) : c) : Character.toLowerCase(c);
+        if ((lower >= 'a' && lower <= 'z') || lower == '-') {
+            append(lower);
+            allDigits = false;
+        } else if (lower >= '0' && lower <= '9') {
+            append(lower);
+        } else {
+            flush(handler);
+        }
+    }
+
+    private void append(char c) {
+        if (length == token.length) {
+            token = Arrays.copyOf(token, length * 2);
+        }
+        token[length++] = c;
+    }
+
+    private void flush(TokenHandler handler) {
+        if (length >= MIN_LENGTH && !allDigits && !isStopWord(token, 0, length)) {
+            handler.onToken(token, 0, length);
+        }
+        length = 0;
+        allDigits = true;
+    }
+
+    private void finish(TokenHandler handler) {
+        flush(handler);
+        if (!inTerminator) {
+            handler.onSentenceEnd();
+        }
+    }
+
+    /**
+     * Check whether a span is one of the stop words
+     */
+    public static boolean isStopWord(char[] chars, int start, int length) {
+        int slot = hash(chars, start, length) & STOP_WORD_MASK;
+        char[] candidate;
+        while ((candidate = STOP_WORD_TABLE[slot]) != null) {
+            if (Arrays.equals(candidate, 0, candidate.length, chars, start, start + length)) {
+                return true;
+            }
+            slot = (slot + 1) & STOP_WORD_MASK;
+        }
+        return false;
+    }
+
+    private static int hash(char[] chars, int start, int length) {
+        int h = 0;
+        for (int i = start; i < start + length; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,416 @@
+package org.search.embedding.ingest;
+
+import org.search.embedding.model.SiameseEmbedding.TrainingPair;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary file holding a complete training set, so a restart can skip
+ * ingestion. All values are little-endian:
+ *
+ * <pre>
+ * header   96 bytes: magic, version, pair count, word count,
+ *                    source fingerprint, string table offset, CRC32C,
+ *                    ingestion stats (tokens, words seen, pairs dropped
+ *                    by min count, pairs subsampled; tokens -1 if unknown)
+ * records  pair count x (int word1, int word2, float similarity)
+ * strings  word count x (int byte length, UTF-8 bytes), indexed by word ID
+ * </pre>
+ *
+ * The checksum covers everything after the header. Records come before the
+ * string table so the file can be written in one streaming pass; the header
+ * is filled in when the writer is closed. Readers map the file and decode
+ * pairs on access, so the records never occupy heap.
+ */
+public class TrainingSetFile {
+
+    private static final int MAGIC = 0x54534554; // "TSET"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 96;
+    private static final int RECORD_SIZE = 12;
+    // Records per mapped segment, keeping each mapping under 2 GB
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    /**
+     * Receives labelled pairs as they are produced, so a training set can
+     * be streamed to disk without materializing it
+     */
+    public interface PairConsumer {
+        void add(String word1, String word2, float similarity) throws IOException;
+    }
+
+    private final MappedByteBuffer[] segments;
+    private final int pairCount;
+    private final List<String> vocabulary;
+    private final long sourceFingerprint;
+    private final Map<String, Object> ingestionStats;
+
+    private TrainingSetFile(MappedByteBuffer[] segments, int pairCount, List<String> vocabulary,
+                            long sourceFingerprint, Map<String, Object> ingestionStats) {
+        this.segments = segments;
+        this.pairCount = pairCount;
+        this.vocabulary = vocabulary;
+        this.sourceFingerprint = sourceFingerprint;
+        this.ingestionStats = ingestionStats;
+    }
+
+    /**
+     * Write a training set in one pass
+     */
+    public static void write(Path file, Iterable<TrainingPair> pairs, long sourceFingerprint) throws IOException {
+        Writer writer = new Writer(file, sourceFingerprint);
+        try {
+            for (TrainingPair pair : pairs) {
+                writer.add(pair.word1, pair.word2, pair.similarity);
+            }
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        writer.close();
+    }
+
+    /**
+     * Map a training set file and verify its header and checksum
+     */
+    public static TrainingSetFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Truncated training set file: " + file);
+            }
+            ByteBuffer header = readHeader(channel);
+            if (header == null || header.getInt() != MAGIC) {
+                throw new IOException("Not a training set file: " + file);
+            }
+            int version = header.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported training set version " + version + ": " + file);
+            }
+            long pairCount = header.getLong();
+            int wordCount = header.getInt();
+            long sourceFingerprint = header.getLong();
+            long stringsOffset = header.getLong();
+            long checksum = header.getLong();
+            long tokens = header.getLong();
+            int wordsSeen = header.getInt();
+            long droppedMinCount = header.getLong();
+            long droppedSubsampled = header.getLong();
+
+            if (pairCount < 0 || pairCount > Integer.MAX_VALUE || wordCount < 0
+                    || stringsOffset != HEADER_SIZE + pairCount * RECORD_SIZE || stringsOffset > size
+                    || size - stringsOffset > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt training set header: " + file);
+            }
+
+            CRC32C crc = new CRC32C();
+            int segmentCount = (int) ((pairCount + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int s = 0; s < segmentCount; s++) {
+                long first = (long) s << SEGMENT_SHIFT;
+                long records = Math.min(pairCount - first, 1L << SEGMENT_SHIFT);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+                segments[s].order(ByteOrder.LITTLE_ENDIAN);
+                crc.update(segments[s].duplicate());
+            }
+            MappedByteBuffer strings = channel.map(FileChannel.MapMode.READ_ONLY, stringsOffset, size - stringsOffset);
+            crc.update(strings.duplicate());
+            if (crc.getValue() != checksum) {
+                throw new IOException("Training set checksum mismatch: " + file);
+            }
+
+            String[] words = readStrings(strings.order(ByteOrder.LITTLE_ENDIAN), wordCount, file);
+            Map<String, Object> stats = tokens < 0 ? Map.of()
+                    : ingestionStats(tokens, wordsSeen, wordCount, droppedMinCount, droppedSubsampled, pairCount);
+            TrainingSetFile set = new TrainingSetFile(segments, (int) pairCount,
+                    Collections.unmodifiableList(Arrays.asList(words)), sourceFingerprint, stats);
+            set.validateRecords(file);
+            return set;
+        }
+    }
+
+    /**
+     * Read only the source fingerprint, or return null if the file is not a
+     * readable training set
+     */
+    public static Long readSourceFingerprint(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            if (header == null || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            header.getLong(); // pair count
+            header.getInt(); // word count
+            return header.getLong();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // Keep reading until the header is complete
+        }
+        header.flip();
+        return header.remaining() == HEADER_SIZE ? header : null;
+    }
+
+    private static Map<String, Object> ingestionStats(long tokens, int wordsSeen, int wordsKept,
+                                                      long droppedMinCount, long droppedSubsampled, long keptPairs) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tokens", tokens);
+        stats.put("wordsSeen", wordsSeen);
+        stats.put("wordsKept", wordsKept);
+        stats.put("uniquePairs", keptPairs + droppedMinCount + droppedSubsampled);
+        stats.put("droppedMinCount", droppedMinCount);
+        stats.put("droppedSubsampled", droppedSubsampled);
+        stats.put("keptPairs", keptPairs);
+        return Collections.unmodifiableMap(stats);
+    }
+
+    private static String[] readStrings(ByteBuffer strings, int wordCount, Path file) throws IOException {
+        String[] words = new String[wordCount];
+        byte[] scratch = new byte[64];
+        for (int id = 0; id < wordCount; id++) {
+            if (strings.remaining() < Integer.BYTES) {
+                throw new IOException("Truncated string table: " + file);
+            }
+            int length = strings.getInt();
+            if (length < 0 || length > strings.remaining()) {
+                throw new IOException("Corrupt string table entry " + id + ": " + file);
+            }
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            strings.get(scratch, 0, length);
+            words[id] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        if (strings.hasRemaining()) {
+            throw new IOException("Trailing bytes after string table: " + file);
+        }
+        return words;
+    }
+
+    private void validateRecords(Path file) throws IOException {
+        int wordCount = vocabulary.size();
+        for (int i = 0; i < pairCount; i++) {
+            ByteBuffer segment = segments[i >>> SEGMENT_SHIFT];
+            int offset = (int) (i & SEGMENT_MASK) * RECORD_SIZE;
+            int word1 = segment.getInt(offset);
+            int word2 = segment.getInt(offset + 4);
+            if (word1 < 0 || word1 >= wordCount || word2 < 0 || word2 >= wordCount) {
+                throw new IOException("Corrupt pair record " + i + ": " + file);
+            }
+        }
+    }
+
+    public int size() {
+        return pairCount;
+    }
+
+    /**
+     * Words referenced by the records, indexed by word ID
+     */
+    public List<String> getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Fingerprint of the corpus and settings the set was built from
+     */
+    public long getSourceFingerprint() {
+        return sourceFingerprint;
+    }
+
+    /**
+     * Counts from the ingestion that built this set: tokens and words seen,
+     * and how many pairs the min-count cutoff and subsampling dropped.
+     * Empty if the writer was not given them.
+     */
+    public Map<String, Object> getIngestionStats() {
+        return ingestionStats;
+    }
+
+    /**
+     * Read-only list view over the mapped records. Pairs are decoded on
+     * each access, so callers iterating every epoch allocate but keep no
+     * per-pair state on the heap.
+     */
+    public List<TrainingPair> getPairs() {
+        return new PairList();
+    }
+
+    private class PairList extends AbstractList<TrainingPair> implements RandomAccess {
+        @Override
+        public TrainingPair get(int index) {
+            if (index < 0 || index >= pairCount) {
+                throw new IndexOutOfBoundsException("Pair " + index + " of " + pairCount);
+            }
+            ByteBuffer segment = segments[index >>> SEGMENT_SHIFT];
+            int offset = (int) (index & SEGMENT_MASK) * RECORD_SIZE;
+            return new TrainingPair(vocabulary.get(segment.getInt(offset)),
+                    vocabulary.get(segment.getInt(offset + 4)), segment.getFloat(offset + 8));
+        }
+
+        @Override
+        public int size() {
+            return pairCount;
+        }
+    }
+
+    /**
+     * Streaming writer. Pairs go straight to disk; only the word table is
+     * kept in memory until close, when the string table and header are
+     * written and the file is moved into place. Call {@link #abort()}
+     * instead of close if writing fails part way.
+     */
+    public static class Writer implements PairConsumer, Closeable {
+        private final Path target;
+        private final Path temp;
+        private final FileChannel channel;
+        private final long sourceFingerprint;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+        private final WordInterner words = new WordInterner();
+        private long pairCount = 0;
+        private long tokens = -1;
+        private int wordsSeen;
+        private long droppedMinCount;
+        private long droppedSubsampled;
+        private boolean closed = false;
+
+        public Writer(Path file, long sourceFingerprint) throws IOException {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.target = file;
+            this.temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+            this.channel.position(HEADER_SIZE);
+            this.sourceFingerprint = sourceFingerprint;
+        }
+
+        @Override
+        public void add(String word1, String word2, float similarity) throws IOException {
+            if (buffer.remaining() < RECORD_SIZE) {
+                flush();
+            }
+            buffer.putInt(words.intern(word1));
+            buffer.putInt(words.intern(word2));
+            buffer.putFloat(similarity);
+            pairCount++;
+        }
+
+        /**
+         * Record the ingestion counts behind the pairs, stored in the header
+         * on close
+         */
+        public void setIngestionStats(long tokens, int wordsSeen, long droppedMinCount, long droppedSubsampled) {
+            this.tokens = tokens;
+            this.wordsSeen = wordsSeen;
+            this.droppedMinCount = droppedMinCount;
+            this.droppedSubsampled = droppedSubsampled;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Discard everything written so far
+         */
+        public void abort() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            channel.close();
+            Files.deleteIfExists(temp);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                flush();
+                long stringsOffset = HEADER_SIZE + pairCount * RECORD_SIZE;
+                for (int id = 0; id < words.size(); id++) {
+                    byte[] bytes = words.word(id).getBytes(StandardCharsets.UTF_8);
+                    if (buffer.remaining() < Integer.BYTES + bytes.length) {
+                        flush();
+                    }
+                    buffer.putInt(bytes.length);
+                    if (bytes.length > buffer.remaining()) {
+                        flush();
+                        ByteBuffer large = ByteBuffer.wrap(bytes);
+                        crc.update(large.duplicate());
+                        while (large.hasRemaining()) {
+                            channel.write(large);
+                        }
+                    } else {
+                        buffer.put(bytes);
+                    }
+                }
+                flush();
+
+                buffer.putInt(MAGIC);
+                buffer.putInt(FORMAT_VERSION);
+                buffer.putLong(pairCount);
+                buffer.putInt(words.size());
+                buffer.putLong(sourceFingerprint);
+                buffer.putLong(stringsOffset);
+                buffer.putLong(crc.getValue());
+                buffer.putLong(tokens);
+                buffer.putInt(wordsSeen);
+                buffer.putLong(droppedMinCount);
+                buffer.putLong(droppedSubsampled);
+                while (buffer.position() < HEADER_SIZE) {
+                    buffer.put((byte) 0);
+                }
+                buffer.flip();
+                long position = 0;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                buffer.clear();
+                channel.force(true);
+            } catch (IOException e) {
+                channel.close();
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            channel.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
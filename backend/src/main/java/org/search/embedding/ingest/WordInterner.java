@@ -0,0 +1,164 @@
+package org.search.embedding.ingest;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense int IDs to words in order of first appearance. Lookups take
+ * a char span, so a word is only materialized as a String the first time it
+ * is seen. Not thread-safe; each ingestion worker keeps its own interner.
+ */
+public class WordInterner {
+
+    private static final int EMPTY = -1;
+    // String header, coder and hash fields plus the byte[] header, per word
+    private static final int STRING_OVERHEAD = 40;
+
+    private String[] words = new String[64];
+    private int[] hashes = new int[64];
+    private int[] slots = newSlots(128);
+    private int size = 0;
+    private long stringBytes = 0;
+
+    /**
+     * Get the ID for a span, adding it if it is new
+     */
+    public int intern(char[] chars, int start, int length) {
+        int hash = hash(chars, start, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        int id;
+        while ((id = slots[slot]) != EMPTY) {
+            if (hashes[id] == hash && matches(words[id], chars, start, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(new String(chars, start, length), hash, slot);
+    }
+
+    /**
+     * Get the ID for a word, adding it if it is new
+     */
+    public int intern(String word) {
+        int hash = hash(word);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        int id;
+        while ((id = slots[slot]) != EMPTY) {
+            if (hashes[id] == hash && words[id].equals(word)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(word, hash, slot);
+    }
+
+    /**
+     * Get the word for an ID
+     */
+    public String word(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown word id: " + id);
+        }
+        return words[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap footprint in bytes, counting the word strings as
+     * well as the tables that index them
+     */
+    public long getMemoryBytes() {
+        return (long) words.length * 8 + (long) hashes.length * Integer.BYTES
+                + (long) slots.length * Integer.BYTES + stringBytes;
+    }
+
+    /**
+     * Forget every word, so IDs start again from 0
+     */
+    public void clear() {
+        words = new String[64];
+        hashes = new int[64];
+        slots = newSlots(128);
+        size = 0;
+        stringBytes = 0;
+    }
+
+    private int add(String word, int hash, int slot) {
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        words[id] = word;
+        hashes[id] = hash;
+        slots[slot] = id;
+        // Latin-1 words take a byte per char, anything else two
+        stringBytes += STRING_OVERHEAD + (long) word.length() * (isLatin1(word) ? 1 : 2);
+
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        int[] newSlots = newSlots(capacity);
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (newSlots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = id;
+        }
+        slots = newSlots;
+    }
+
+    private static int[] newSlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+
+    private static boolean isLatin1(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String word, char[] chars, int start, int length) {
+        if (word.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(char[] chars, int start, int length) {
+        int h = 0;
+        for (int i = start; i < start + length; i++) {
+            h = 31 * h + chars[i];
+        }
+        return mix(h);
+    }
+
+    private static int hash(String word) {
+        return mix(word.hashCode());
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
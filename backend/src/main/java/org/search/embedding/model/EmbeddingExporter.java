@@ -0,0 +1,170 @@
+package org.search.embedding.model;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes a trained embedding matrix row by row to an output stream. Only
+ * one row and a fixed-size buffer are held at a time, so exports of any
+ * vocabulary size stream in constant memory. Rows follow vocabulary order
+ * in every format, which keeps the float32 matrix aligned with its
+ * vocabulary sidecar.
+ */
+public class EmbeddingExporter {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final JsonFactory JSON = new JsonFactory();
+
+    public enum Format {
+        /** One JSON object per line: {"word": ..., "embedding": [...]} */
+        NDJSON("ndjson"),
+        /** word2vec text: "rows dim" header, then "word v1 v2 ..." lines */
+        WORD2VEC_TEXT("word2vec"),
+        /** word2vec binary: text header, then word, space, little-endian float32s, newline */
+        WORD2VEC_BINARY("word2vec-bin"),
+        /** Bare little-endian float32 matrix, rows in vocabulary order */
+        FLOAT32("f32"),
+        /** Vocabulary sidecar for FLOAT32: one word per line, in row order */
+        VOCABULARY("vocab");
+
+        private final String id;
+
+        Format(String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public static Format parse(String id) {
+            for (Format format : values()) {
+                if (format.id.equalsIgnoreCase(id)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format: " + id);
+        }
+    }
+
+    private final List<String> vocabulary;
+    private final EmbeddingMatrix matrix;
+
+    public EmbeddingExporter(List<String> vocabulary, EmbeddingMatrix matrix) {
+        if (vocabulary.size() != matrix.getRows()) {
+            throw new IllegalArgumentException("Vocabulary has " + vocabulary.size()
+                    + " words but the matrix has " + matrix.getRows() + " rows");
+        }
+        this.vocabulary = vocabulary;
+        this.matrix = matrix;
+    }
+
+    public int getRows() {
+        return matrix.getRows();
+    }
+
+    public int getDimension() {
+        return matrix.getDimension();
+    }
+
+    /**
+     * Write the whole export. The stream is flushed but not closed.
+     */
+    public void write(Format format, OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER_BYTES);
+        switch (format) {
+            case NDJSON -> writeNdjson(buffered);
+            case WORD2VEC_TEXT -> writeWord2VecText(buffered);
+            case WORD2VEC_BINARY -> writeWord2VecBinary(buffered);
+            case FLOAT32 -> writeFloat32(buffered);
+            case VOCABULARY -> writeVocabulary(buffered);
+        }
+        buffered.flush();
+    }
+
+    private void writeNdjson(OutputStream out) throws IOException {
+        float[] row = new float[matrix.getDimension()];
+        Iterator<String> words = vocabulary.iterator();
+        JsonGenerator json = JSON.createGenerator(out, JsonEncoding.UTF8);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null);
+        for (int i = 0; i < matrix.getRows(); i++) {
+            matrix.copyRow(i, row);
+            json.writeStartObject();
+            json.writeStringField("word", words.next());
+            json.writeArrayFieldStart("embedding");
+            for (float value : row) {
+                json.writeNumber(value);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+        json.flush();
+    }
+
+    private void writeWord2VecText(OutputStream out) throws IOException {
+        float[] row = new float[matrix.getDimension()];
+        Iterator<String> words = vocabulary.iterator();
+        writeAscii(out, matrix.getRows() + " " + matrix.getDimension() + "\n");
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < matrix.getRows(); i++) {
+            matrix.copyRow(i, row);
+            line.setLength(0);
+            line.append(words.next());
+            for (float value : row) {
+                line.append(' ').append(value);
+            }
+            line.append('\n');
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void writeWord2VecBinary(OutputStream out) throws IOException {
+        float[] row = new float[matrix.getDimension()];
+        Iterator<String> words = vocabulary.iterator();
+        ByteBuffer vector = ByteBuffer.allocate(row.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        writeAscii(out, matrix.getRows() + " " + matrix.getDimension() + "\n");
+        for (int i = 0; i < matrix.getRows(); i++) {
+            matrix.copyRow(i, row);
+            out.write(words.next().getBytes(StandardCharsets.UTF_8));
+            out.write(' ');
+            vector.clear();
+            vector.asFloatBuffer().put(row);
+            out.write(vector.array());
+            out.write('\n');
+        }
+    }
+
+    private void writeFloat32(OutputStream out) throws IOException {
+        float[] row = new float[matrix.getDimension()];
+        ByteBuffer vector = ByteBuffer.allocate(row.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < matrix.getRows(); i++) {
+            matrix.copyRow(i, row);
+            vector.clear();
+            vector.asFloatBuffer().put(row);
+            out.write(vector.array());
+        }
+    }
+
+    private void writeVocabulary(OutputStream out) throws IOException {
+        for (String word : vocabulary) {
+            out.write(word.getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+        }
+    }
+
+    private static void writeAscii(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
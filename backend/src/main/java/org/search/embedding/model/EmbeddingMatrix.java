@@ -0,0 +1,84 @@
+package org.search.embedding.model;
+
+/**
+ * Dense row-major matrix of embedding vectors, one row per vocabulary index.
+ * Inverse L2 norms are kept alongside the raw values so cosine similarity
+ * between two rows is a single dot product with no allocation.
+ */
+public class EmbeddingMatrix {
+
+    private final int rows;
+    private final int dimension;
+    private final float[] values;
+    private final float[] inverseNorms;
+
+    public EmbeddingMatrix(int rows, int dimension) {
+        if (rows < 0 || dimension <= 0) {
+            throw new IllegalArgumentException("Invalid matrix shape: " + rows + "x" + dimension);
+        }
+        this.rows = rows;
+        this.dimension = dimension;
+        this.values = new float[Math.multiplyExact(rows, dimension)];
+        this.inverseNorms = new float[rows];
+    }
+
+    /**
+     * Store the vector for a row and precompute its inverse norm
+     */
+    public void setRow(int row, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Vector length mismatch: expected " + dimension + ", got " + vector.length);
+        }
+        System.arraycopy(vector, 0, values, row * dimension, dimension);
+
+        float norm = 0f;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        inverseNorms[row] = norm > 0 ? (float) (1.0 / Math.sqrt(norm)) : 0f;
+    }
+
+    /**
+     * Get a copy of the vector stored for a row
+     */
+    public float[] getRow(int row) {
+        float[] vector = new float[dimension];
+        System.arraycopy(values, row * dimension, vector, 0, dimension);
+        return vector;
+    }
+
+    /**
+     * Copy the vector stored for a row into a caller-owned buffer
+     */
+    public void copyRow(int row, float[] dest) {
+        System.arraycopy(values, row * dimension, dest, 0, dimension);
+    }
+
+    /**
+     * Cosine similarity between two rows
+     */
+    public float cosine(int row1, int row2) {
+        int offset1 = row1 * dimension;
+        int offset2 = row2 * dimension;
+        float dot = 0f;
+        for (int i = 0; i < dimension; i++) {
+            dot += values[offset1 + i] * values[offset2 + i];
+        }
+        return dot * inverseNorms[row1] * inverseNorms[row2];
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Approximate heap footprint of the matrix data in bytes
+     */
+    public long getMemoryBytes() {
+        return (long) values.length * Float.BYTES + (long) inverseNorms.length * Float.BYTES;
+    }
+}
@@ -0,0 +1,310 @@
+package org.search.embedding.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * Immutable sorted string dictionary in front-coded form. Words are sorted
+ * by their UTF-8 bytes and split into blocks of {@value #BLOCK_SIZE}. The
+ * first word of a block is stored whole; each following word stores only
+ * the length of the prefix it shares with its predecessor and the rest of
+ * its bytes. Sorted vocabularies share long prefixes, so this takes a
+ * fraction of the space of a string list plus a hash map.
+ *
+ * A word's ID is its position in sorted order. Lookups binary-search the
+ * block heads and then decode at most one block. Words that share a prefix
+ * form one contiguous ID range, which is what prefix search returns.
+ */
+public final class FrontCodedDictionary {
+
+    static final int BLOCK_SIZE = 16;
+
+    private static final FrontCodedDictionary EMPTY = new FrontCodedDictionary(new byte[0], new int[0], 0);
+
+    private final byte[] data;
+    private final int[] blockOffsets;
+    private final int size;
+
+    private FrontCodedDictionary(byte[] data, int[] blockOffsets, int size) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.size = size;
+    }
+
+    public static FrontCodedDictionary empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build a dictionary from any collection of words; duplicates are dropped
+     */
+    public static FrontCodedDictionary of(Collection<String> words) {
+        TreeSet<byte[]> sorted = new TreeSet<>(Arrays::compareUnsigned);
+        for (String word : words) {
+            sorted.add(word.getBytes(StandardCharsets.UTF_8));
+        }
+        if (sorted.isEmpty()) {
+            return EMPTY;
+        }
+
+        int[] blockOffsets = new int[(sorted.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        ByteSink sink = new ByteSink();
+        byte[] previous = null;
+        int id = 0;
+        for (byte[] word : sorted) {
+            int shared = 0;
+            if (id % BLOCK_SIZE == 0) {
+                blockOffsets[id / BLOCK_SIZE] = sink.size;
+            } else {
+                // Distinct sorted words always differ, at the latest where the shorter one ends
+                shared = Arrays.mismatch(previous, word);
+            }
+            sink.varint(shared);
+            sink.varint(word.length - shared);
+            sink.bytes(word, shared, word.length - shared);
+            previous = word;
+            id++;
+        }
+        return new FrontCodedDictionary(sink.toArray(), blockOffsets, sorted.size());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * ID of a word, or -1 if it is not in the dictionary
+     */
+    public int indexOf(String word) {
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int id = lowerBound(key);
+        if (id < size && Arrays.equals(wordBytes(id), key)) {
+            return id;
+        }
+        return -1;
+    }
+
+    public boolean contains(String word) {
+        return indexOf(word) >= 0;
+    }
+
+    /**
+     * Word with the given ID
+     */
+    public String word(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Word ID " + id + " out of range for size " + size);
+        }
+        return new String(wordBytes(id), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Number of words starting with the prefix
+     */
+    public int countPrefix(String prefix) {
+        int[] range = prefixRange(prefix);
+        return range[1] - range[0];
+    }
+
+    /**
+     * Words starting with the prefix, in sorted order, skipping the first
+     * {@code offset} matches and returning at most {@code limit}
+     */
+    public List<String> findByPrefix(String prefix, int offset, int limit) {
+        int[] range = prefixRange(prefix);
+        int from = (int) Math.min((long) range[0] + offset, range[1]);
+        int to = (int) Math.min((long) from + limit, range[1]);
+        if (from >= to) {
+            return List.of();
+        }
+        List<String> words = new ArrayList<>(to - from);
+        Cursor cursor = new Cursor(from);
+        for (int id = from; id < to; id++) {
+            words.add(new String(cursor.next(), StandardCharsets.UTF_8));
+        }
+        return words;
+    }
+
+    /**
+     * All words in ID order, decoded on access
+     */
+    public List<String> asList() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return word(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                // Blocks are stored back to back, so one cursor decodes them all in order
+                return new Iterator<>() {
+                    private final Cursor cursor = size > 0 ? new Cursor(0) : null;
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        next++;
+                        return new String(cursor.next(), StandardCharsets.UTF_8);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Approximate heap footprint in bytes
+     */
+    public long getMemoryBytes() {
+        return data.length + (long) blockOffsets.length * Integer.BYTES;
+    }
+
+    /**
+     * [first, end) IDs of the words starting with the prefix
+     */
+    private int[] prefixRange(String prefix) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        if (key.length == 0) {
+            return new int[]{0, size};
+        }
+        // Every word with the prefix sorts below the prefix with its last
+        // byte incremented; UTF-8 never contains 0xFF, so that cannot overflow
+        byte[] upper = key.clone();
+        upper[upper.length - 1]++;
+        return new int[]{lowerBound(key), lowerBound(upper)};
+    }
+
+    /**
+     * ID of the first word not less than the key
+     */
+    private int lowerBound(byte[] key) {
+        if (size == 0) {
+            return 0;
+        }
+        // Last block whose head is <= key
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (Arrays.compareUnsigned(new Cursor(mid * BLOCK_SIZE).next(), key) <= 0) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int id = low * BLOCK_SIZE;
+        int end = Math.min(id + BLOCK_SIZE, size);
+        Cursor cursor = new Cursor(id);
+        for (; id < end; id++) {
+            if (Arrays.compareUnsigned(cursor.next(), key) >= 0) {
+                return id;
+            }
+        }
+        return id;
+    }
+
+    private byte[] wordBytes(int id) {
+        return new Cursor(id).next();
+    }
+
+    /**
+     * Sequential decoder starting at a block boundary or, via skipping,
+     * at any ID
+     */
+    private final class Cursor {
+        private int position;
+        private byte[] current = new byte[0];
+        private int currentLength = 0;
+
+        Cursor(int id) {
+            int block = id / BLOCK_SIZE;
+            position = blockOffsets[block];
+            for (int skip = id % BLOCK_SIZE; skip > 0; skip--) {
+                advance();
+            }
+        }
+
+        byte[] next() {
+            advance();
+            return Arrays.copyOf(current, currentLength);
+        }
+
+        private void advance() {
+            int shared = readVarint();
+            int suffix = readVarint();
+            int length = shared + suffix;
+            if (current.length < length) {
+                current = Arrays.copyOf(current, Math.max(length, current.length * 2));
+            }
+            System.arraycopy(data, position, current, shared, suffix);
+            position += suffix;
+            currentLength = length;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+
+    private static final class ByteSink {
+        private byte[] buffer = new byte[1024];
+        private int size = 0;
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        void bytes(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, buffer, size, length);
+            size += length;
+        }
+
+        private void put(byte b) {
+            ensure(1);
+            buffer[size++] = b;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(size + extra, buffer.length * 2));
+            }
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
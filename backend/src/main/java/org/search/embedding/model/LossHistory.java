@@ -0,0 +1,124 @@
+package org.search.embedding.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Arrays;
+
+/**
+ * Per-epoch loss values held in a fixed number of points. When the buffer
+ * fills up, neighbouring points are averaged in place, halving the
+ * resolution, so a run of any length fits and the curve still spans every
+ * epoch. Each point is the mean loss over {@link #getEpochsPerPoint()}
+ * epochs; the newest, partly filled point is included in snapshots.
+ *
+ * Only the training thread touches an instance; readers get immutable
+ * {@link Snapshot}s.
+ */
+public class LossHistory {
+
+    private final float[] points;
+    private int size = 0;
+    private int epochsPerPoint = 1;
+    private double pendingSum = 0;
+    private int pendingCount = 0;
+
+    public LossHistory(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        // Compaction pairs up points, so keep the capacity even
+        this.points = new float[capacity + (capacity & 1)];
+    }
+
+    public void add(float loss) {
+        pendingSum += loss;
+        pendingCount++;
+        if (pendingCount < epochsPerPoint) {
+            return;
+        }
+        if (size == points.length) {
+            compact();
+            if (pendingCount < epochsPerPoint) {
+                return;
+            }
+        }
+        points[size++] = (float) (pendingSum / pendingCount);
+        pendingSum = 0;
+        pendingCount = 0;
+    }
+
+    private void compact() {
+        for (int i = 0; i < size / 2; i++) {
+            points[i] = (points[2 * i] + points[2 * i + 1]) / 2f;
+        }
+        size /= 2;
+        epochsPerPoint *= 2;
+    }
+
+    public void clear() {
+        size = 0;
+        epochsPerPoint = 1;
+        pendingSum = 0;
+        pendingCount = 0;
+    }
+
+    /**
+     * Copy of the current points, oldest first
+     */
+    public float[] getValues() {
+        float[] values = Arrays.copyOf(points, size + (pendingCount > 0 ? 1 : 0));
+        if (pendingCount > 0) {
+            values[size] = (float) (pendingSum / pendingCount);
+        }
+        return values;
+    }
+
+    public int getEpochsPerPoint() {
+        return epochsPerPoint;
+    }
+
+    public int size() {
+        return size + (pendingCount > 0 ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public Snapshot snapshot() {
+        return isEmpty() ? Snapshot.EMPTY : new Snapshot(getValues(), epochsPerPoint);
+    }
+
+    /**
+     * Immutable copy of the history at one point in time
+     */
+    public static final class Snapshot {
+
+        public static final Snapshot EMPTY = new Snapshot(new float[0], 1);
+
+        private final float[] values;
+        private final int epochsPerPoint;
+
+        private Snapshot(float[] values, int epochsPerPoint) {
+            this.values = values;
+            this.epochsPerPoint = epochsPerPoint;
+        }
+
+        public float[] getValues() {
+            return values.clone();
+        }
+
+        public int getEpochsPerPoint() {
+            return epochsPerPoint;
+        }
+
+        public int size() {
+            return values.length;
+        }
+
+        @JsonIgnore
+        public boolean isEmpty() {
+            return values.length == 0;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.search.embedding.model;
+
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDManager;
+import ai.djl.nn.Block;
+import ai.djl.nn.Parameter;
+import ai.djl.util.Pair;
+
+/**
+ * Native memory estimates for DJL models
+ */
+public final class ModelMemory {
+
+    /**
+     * Open arrays and their bytes at one point in time
+     */
+    public static final class Usage {
+
+        public static final Usage NONE = new Usage(0, 0);
+
+        private final int arrays;
+        private final long bytes;
+
+        private Usage(int arrays, long bytes) {
+            this.arrays = arrays;
+            this.bytes = bytes;
+        }
+
+        public int getArrays() {
+            return arrays;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    private ModelMemory() {
+    }
+
+    /**
+     * Bytes held by the initialized parameter arrays of a block, 0 if it
+     * has none yet
+     */
+    public static long parameterBytes(Block block) {
+        if (block == null || !block.isInitialized()) {
+            return 0;
+        }
+        long bytes = 0;
+        for (Pair<String, Parameter> parameter : block.getParameters()) {
+            if (parameter.getValue().isInitialized()) {
+                NDArray array = parameter.getValue().getArray();
+                bytes += array.size() * array.getDataType().getNumOfBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Count the open arrays under the managers, sub-managers included. Only
+     * call this while no other thread is creating or freeing arrays on
+     * them: reading the shape of an array freed meanwhile touches released
+     * native memory.
+     */
+    public static Usage usage(NDManager... managers) {
+        int arrays = 0;
+        long bytes = 0;
+        for (NDManager manager : managers) {
+            if (manager == null || !manager.isOpen()) {
+                continue;
+            }
+            for (NDArray array : manager.getManagedArrays()) {
+                if (!array.isReleased()) {
+                    arrays++;
+                    bytes += array.size() * array.getDataType().getNumOfBytes();
+                }
+            }
+        }
+        return new Usage(arrays, bytes);
+    }
+}
@@ -0,0 +1,84 @@
+package org.search.embedding.model;
+
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Sub-manager for the arrays of one training step or batch. Every array
+ * created on it, and every result computed from those arrays, is freed
+ * when the scope closes instead of piling up on the long-lived parent.
+ *
+ * In debug mode the scope remembers where it was opened and which arrays
+ * the parent held. Arrays that appear on the parent while the scope is
+ * open were allocated during the scope but escaped it; they are logged
+ * with the scope's opening stack trace. This walks the parent twice per
+ * scope, so it is meant for chasing leaks, not for production.
+ */
+public final class NDScope implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NDScope.class);
+
+    private final NDManager parent;
+    private final NDManager manager;
+    private final Set<String> parentArrays; // null unless debugging
+    private final Throwable openedAt;
+    private int escapedCount = 0;
+
+    private NDScope(NDManager parent, boolean debug) {
+        this.parent = parent;
+        this.parentArrays = debug ? uids(parent.getManagedArrays()) : null;
+        this.openedAt = debug ? new Throwable("NDArray scope opened here") : null;
+        this.manager = parent.newSubManager();
+    }
+
+    public static NDScope open(NDManager parent, boolean debug) {
+        return new NDScope(parent, debug);
+    }
+
+    public NDManager getManager() {
+        return manager;
+    }
+
+    @Override
+    public void close() {
+        manager.close();
+        if (parentArrays != null) {
+            reportEscapes();
+        }
+    }
+
+    private void reportEscapes() {
+        List<NDArray> escaped = parent.getManagedArrays().stream()
+                .filter(array -> !parentArrays.contains(array.getUid()))
+                .collect(Collectors.toList());
+        escapedCount = escaped.size();
+        if (!escaped.isEmpty()) {
+            String shapes = escaped.stream()
+                    .map(array -> array.getShape().toString())
+                    .collect(Collectors.joining(", "));
+            logger.warn("{} NDArray(s) outlived their scope: {}", escaped.size(), shapes, openedAt);
+        }
+    }
+
+    /**
+     * Arrays found escaping when the scope closed; always 0 outside debug mode
+     */
+    int getEscapedCount() {
+        return escapedCount;
+    }
+
+    private static Set<String> uids(List<NDArray> arrays) {
+        Set<String> uids = new HashSet<>(arrays.size() * 2);
+        for (NDArray array : arrays) {
+            uids.add(array.getUid());
+        }
+        return uids;
+    }
+}
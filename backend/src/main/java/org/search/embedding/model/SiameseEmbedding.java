@@ -24,7 +24,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * Siamese Neural Network for Custom Domain-Specific Embeddings
@@ -34,8 +37,11 @@ public class SiameseEmbedding {
 
     private static final Logger logger = LoggerFactory.getLogger(SiameseEmbedding.class);
 
-    private final Map<String, Integer> wordToIdx = new ConcurrentHashMap<>();
-    private final List<String> vocabulary = new ArrayList<>();
+    private static final int EMBEDDING_BATCH_SIZE = 256;
+    private static final int CANCEL_CHECK_INTERVAL = 64; // pairs between cancellation checks
+    private static final int LOSS_HISTORY_POINTS = 200;
+
+    private volatile FrontCodedDictionary dictionary = FrontCodedDictionary.empty(); // word <-> vocabulary index
     private int vocabSize = 0;
     
     private final int embedDim;
@@ -43,13 +49,19 @@ public class SiameseEmbedding {
     private final int epochs;
     private final float learningRate;
     
-    private Model model;
+    private volatile Model model;
     private Trainer trainer;
     private NDManager manager;
     private Predictor<NDList, NDList> predictor;
+    private EmbeddingMatrix embeddings;
     
     private boolean isTrained = false;
-    private TrainingProgress progress;
+    private final AtomicReference<TrainingProgress> progress = new AtomicReference<>();
+    private final LossHistory lossHistory = new LossHistory(LOSS_HISTORY_POINTS); // trainer thread only
+    private volatile Consumer<TrainingProgress> progressListener = progress -> { };
+    private volatile EpochListener epochListener = (epoch, pairs, nanos) -> { };
+    private boolean debugScopes = false;
+    private volatile ModelMemory.Usage nativeUsage = ModelMemory.Usage.NONE; // sampled on the training thread after each step
     
     public static class TrainingPair {
         public final String word1;
@@ -68,13 +80,48 @@ public class SiameseEmbedding {
         }
     }
     
-    public static class TrainingProgress {
-        public int currentEpoch = 0;
-        public int totalEpochs = 0;
-        public float currentLoss = 0f;
-        public boolean isTraining = false;
-        public String status = "Not started";
-        public List<Float> lossHistory = new ArrayList<>();
+    /**
+     * Receives the duration of every finished epoch
+     */
+    @FunctionalInterface
+    public interface EpochListener {
+        void onEpoch(int epoch, int pairs, long nanos);
+    }
+    
+    /**
+     * Immutable view of training progress. The trainer publishes a new
+     * instance after every epoch and status change, so readers always see
+     * the fields of one moment together and never wait on training.
+     */
+    public static final class TrainingProgress {
+        public final int currentEpoch;
+        public final int totalEpochs;
+        public final float currentLoss;
+        public final boolean isTraining;
+        public final String status;
+        public final LossHistory.Snapshot lossHistory;
+        
+        public TrainingProgress() {
+            this(0, 0, 0f, false, "Not started", LossHistory.Snapshot.EMPTY);
+        }
+        
+        public TrainingProgress(int currentEpoch, int totalEpochs, float currentLoss,
+                                boolean isTraining, String status, LossHistory.Snapshot lossHistory) {
+            this.currentEpoch = currentEpoch;
+            this.totalEpochs = totalEpochs;
+            this.currentLoss = currentLoss;
+            this.isTraining = isTraining;
+            this.status = status;
+            this.lossHistory = lossHistory;
+        }
+        
+        public TrainingProgress withStatus(boolean isTraining, String status) {
+            return new TrainingProgress(currentEpoch, totalEpochs, currentLoss, isTraining, status, lossHistory);
+        }
+        
+        public TrainingProgress withEpoch(int currentEpoch, float currentLoss, LossHistory.Snapshot lossHistory) {
+            return new TrainingProgress(currentEpoch, totalEpochs, currentLoss, isTraining, status, lossHistory);
+        }
     }
     
     /**
@@ -129,8 +176,7 @@ public class SiameseEmbedding {
         this.margin = margin;
         this.epochs = epochs;
         this.learningRate = learningRate;
-        this.progress = new TrainingProgress();
-        this.progress.totalEpochs = epochs;
+        this.progress.set(new TrainingProgress(0, epochs, 0f, false, "Not started", LossHistory.Snapshot.EMPTY));
     }
     
     /**
@@ -143,28 +189,17 @@ public class SiameseEmbedding {
             uniqueWords.add(pair.word2.toLowerCase());
         }
         
-        vocabulary.clear();
-        vocabulary.addAll(uniqueWords);
-        Collections.sort(vocabulary);
-        
-        wordToIdx.clear();
-        for (int i = 0; i < vocabulary.size(); i++) {
-            wordToIdx.put(vocabulary.get(i), i);
-        }
-        
-        vocabSize = vocabulary.size();
-        logger.info("Vocabulary built: {} unique words", vocabSize);
+        // Vocabulary indices are the dictionary's sorted word IDs
+        dictionary = FrontCodedDictionary.of(uniqueWords);
+        vocabSize = dictionary.size();
+        logger.info("Vocabulary built: {} unique words ({} bytes)", vocabSize, dictionary.getMemoryBytes());
     }
     
     /**
-     * Create one-hot encoding for a word
+     * Create one-hot encoding for a vocabulary index on a step's manager
      */
-    private NDArray oneHot(String word) {
-        Integer idx = wordToIdx.get(word.toLowerCase());
-        if (idx == null) {
-            throw new IllegalArgumentException("Word not in vocabulary: " + word);
-        }
-        NDArray vec = manager.zeros(new Shape(1, vocabSize));
+    private NDArray oneHot(NDManager scope, int idx) {
+        NDArray vec = scope.zeros(new Shape(1, vocabSize));
         vec.set(new ai.djl.ndarray.index.NDIndex(0, idx), 1f);
         return vec;
     }
@@ -183,14 +218,23 @@ public class SiameseEmbedding {
      * Train the Siamese network on word pairs
      */
     public void train(List<TrainingPair> pairs) throws Exception {
+        train(pairs, () -> false);
+    }
+    
+    /**
+     * Train the Siamese network on word pairs, stopping with a
+     * CancellationException once the cancellation check returns true.
+     * The check runs every few pairs, so cancelling never waits for a
+     * whole epoch.
+     */
+    public void train(List<TrainingPair> pairs, BooleanSupplier cancelled) throws Exception {
         logger.info("Starting training with {} pairs...", pairs.size());
         logger.info("DJL Engine: {}", Engine.getInstance().getEngineName());
 
-        progress.isTraining = true;
-        progress.status = "Building vocabulary...";
+        publishStatus(true, "Building vocabulary...");
         buildVocabulary(pairs);
 
-        progress.status = "Initializing model...";
+        publishStatus(true, "Initializing model...");
         manager = NDManager.newBaseManager();
         model = Model.newInstance("siamese-embedding");
         model.setBlock(createEmbeddingNet());
@@ -207,17 +251,32 @@ public class SiameseEmbedding {
         trainer = model.newTrainer(config);
         trainer.initialize(new Shape(1, vocabSize));
 
-        progress.status = "Training...";
-        progress.lossHistory.clear();
+        lossHistory.clear();
+        publish(progress.get().withEpoch(0, 0f, LossHistory.Snapshot.EMPTY).withStatus(true, "Training..."));
+
+        // Resolve pair words to indices once instead of once per epoch
+        int[] left = new int[pairs.size()];
+        int[] right = new int[pairs.size()];
+        for (int i = 0; i < pairs.size(); i++) {
+            left[i] = requireIndex(pairs.get(i).word1);
+            right[i] = requireIndex(pairs.get(i).word2);
+        }
 
         for (int epoch = 0; epoch < epochs; epoch++) {
+            long epochStart = System.nanoTime();
             float totalLoss = 0f;
 
-            for (TrainingPair pair : pairs) {
-                try {
-                    NDArray x1 = oneHot(pair.word1);
-                    NDArray x2 = oneHot(pair.word2);
-                    NDArray y = manager.create(new float[]{pair.similarity}).reshape(1, 1);
+            for (int i = 0; i < pairs.size(); i++) {
+                if (i % CANCEL_CHECK_INTERVAL == 0) {
+                    checkCancelled(cancelled);
+                }
+                TrainingPair pair = pairs.get(i);
+                // Inputs, activations and the loss of one step all live on its scope
+                try (NDScope scope = NDScope.open(manager, debugScopes)) {
+                    NDManager step = scope.getManager();
+                    NDArray x1 = oneHot(step, left[i]);
+                    NDArray x2 = oneHot(step, right[i]);
+                    NDArray y = step.create(new float[]{pair.similarity}).reshape(1, 1);
 
                     NDArray e1;
                     NDArray e2;
@@ -236,26 +295,115 @@ public class SiameseEmbedding {
                 } catch (Exception e) {
                     logger.error("Error processing pair: {} - {}", pair, e.getMessage(), e);
                 }
+                sampleNativeUsage();
             }
 
-            progress.currentEpoch = epoch + 1;
-            progress.currentLoss = totalLoss;
-            progress.lossHistory.add(totalLoss);
+            lossHistory.add(totalLoss);
+            publish(progress.get().withEpoch(epoch + 1, totalLoss, lossHistory.snapshot()));
+            epochListener.onEpoch(epoch + 1, pairs.size(), System.nanoTime() - epochStart);
 
             if (epoch % 50 == 0 || epoch == epochs - 1) {
                 logger.info("Epoch {}/{}, Loss: {:.4f}", epoch + 1, epochs, totalLoss);
             }
         }
 
-        // Initialize predictor for inference
+        // Initialize predictor and precompute the embedding of every vocabulary word
+        checkCancelled(cancelled);
+        publishStatus(true, "Computing embeddings...");
         predictor = model.newPredictor(new NoopTranslator());
+        embeddings = computeEmbeddingMatrix();
         isTrained = true;
-        progress.isTraining = false;
-        progress.status = "Training completed";
+        sampleNativeUsage();
+        publishStatus(false, "Training completed");
 
         logger.info("Training completed successfully!");
     }
     
+    /**
+     * Receive the progress after every epoch and status change. Called on
+     * the training thread, so listeners should hand off any slow work.
+     */
+    public void setProgressListener(Consumer<TrainingProgress> listener) {
+        this.progressListener = listener;
+    }
+    
+    /**
+     * Log arrays that escape their step or batch scope, with the scope's
+     * stack trace. Slow; for tracking down native memory leaks.
+     */
+    public void setDebugScopes(boolean debugScopes) {
+        this.debugScopes = debugScopes;
+    }
+    
+    /**
+     * Walk the managers on the training thread after a step or batch scope
+     * has closed, where nothing else frees arrays concurrently, and publish
+     * the result for metric readers. The walk covers only what outlives a
+     * scope (parameters, gradients, optimizer state, leaks), so it stays
+     * cheap next to the step itself.
+     */
+    private void sampleNativeUsage() {
+        Model model = this.model;
+        nativeUsage = ModelMemory.usage(manager, model != null ? model.getNDManager() : null);
+    }
+    
+    /**
+     * Receive the duration of every epoch, on the training thread
+     */
+    public void setEpochListener(EpochListener listener) {
+        this.epochListener = listener;
+    }
+    
+    private void publishStatus(boolean isTraining, String status) {
+        publish(progress.get().withStatus(isTraining, status));
+    }
+    
+    private void publish(TrainingProgress update) {
+        progress.set(update);
+        try {
+            progressListener.accept(update);
+        } catch (RuntimeException e) {
+            logger.warn("Progress listener failed: {}", e.getMessage());
+        }
+    }
+    
+    private void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            publishStatus(false, "Cancelled");
+            logger.info("Training cancelled at epoch {}", progress.get().currentEpoch);
+            throw new CancellationException("Training cancelled");
+        }
+    }
+    
+    /**
+     * Run every vocabulary word through the trained network in batches
+     */
+    private EmbeddingMatrix computeEmbeddingMatrix() throws Exception {
+        EmbeddingMatrix matrix = new EmbeddingMatrix(vocabSize, embedDim);
+        for (int start = 0; start < vocabSize; start += EMBEDDING_BATCH_SIZE) {
+            int end = Math.min(start + EMBEDDING_BATCH_SIZE, vocabSize);
+            float[] values;
+            try (NDScope scope = NDScope.open(manager, debugScopes)) {
+                NDArray batch = scope.getManager().zeros(new Shape(end - start, vocabSize));
+                for (int i = start; i < end; i++) {
+                    batch.set(new ai.djl.ndarray.index.NDIndex(i - start, i), 1f);
+                }
+                NDList output = predictor.predict(new NDList(batch));
+                // The no-op translator hands the output back unmanaged; free it with the batch
+                output.attach(scope.getManager());
+                values = output.singletonOrThrow().toFloatArray();
+            }
+            sampleNativeUsage();
+            for (int i = start; i < end; i++) {
+                float[] row = new float[embedDim];
+                System.arraycopy(values, (i - start) * embedDim, row, 0, embedDim);
+                matrix.setRow(i, row);
+            }
+        }
+        logger.info("Embedding matrix computed: {} x {}", vocabSize, embedDim);
+        return matrix;
+    }
+    
     /**
      * Get embedding for a single word
      */
@@ -264,9 +412,7 @@ public class SiameseEmbedding {
             throw new IllegalStateException("Model not trained yet");
         }
         
-        NDArray x = oneHot(word);
-        NDArray embedding = predictor.predict(new NDList(x)).singletonOrThrow();
-        return embedding.toFloatArray();
+        return embeddings.getRow(requireIndex(word));
     }
     
     /**
@@ -277,37 +423,50 @@ public class SiameseEmbedding {
             throw new IllegalStateException("Model not trained yet");
         }
         
-        NDArray x1 = oneHot(word1);
-        NDArray x2 = oneHot(word2);
-        
-        NDArray e1 = predictor.predict(new NDList(x1)).singletonOrThrow();
-        NDArray e2 = predictor.predict(new NDList(x2)).singletonOrThrow();
-        
-        return cosineSimilarity(e1, e2);
+        return embeddings.cosine(requireIndex(word1), requireIndex(word2));
     }
     
-    /**
-     * Calculate cosine similarity between two embedding vectors
-     */
-    private float cosineSimilarity(NDArray a, NDArray b) {
-        float eps = 1e-12f;
-        NDArray an = a.div(a.mul(a).sum().sqrt().add(eps));
-        NDArray bn = b.div(b.mul(b).sum().sqrt().add(eps));
-        return an.mul(bn).sum().toFloatArray()[0];
+    private int requireIndex(String word) {
+        int idx = dictionary.indexOf(word.toLowerCase());
+        if (idx < 0) {
+            throw new IllegalArgumentException("Word not in vocabulary: " + word);
+        }
+        return idx;
     }
     
     /**
      * Check if a word exists in the vocabulary
      */
     public boolean hasWord(String word) {
-        return wordToIdx.containsKey(word.toLowerCase());
+        return dictionary.contains(word.toLowerCase());
+    }
+    
+    /**
+     * Get the vocabulary index of a word, or -1 if it is unknown
+     */
+    public int indexOf(String word) {
+        return dictionary.indexOf(word.toLowerCase());
     }
     
     /**
-     * Get the current vocabulary
+     * Get the precomputed embedding matrix, aligned with vocabulary indices
+     */
+    public EmbeddingMatrix getEmbeddingMatrix() {
+        return embeddings;
+    }
+    
+    /**
+     * Get the current vocabulary as a read-only view in index order
      */
     public List<String> getVocabulary() {
-        return new ArrayList<>(vocabulary);
+        return dictionary.asList();
+    }
+    
+    /**
+     * Get the vocabulary dictionary, for lookups and prefix search
+     */
+    public FrontCodedDictionary getDictionary() {
+        return dictionary;
     }
     
     /**
@@ -318,10 +477,26 @@ public class SiameseEmbedding {
     }
     
     /**
-     * Get training progress
+     * Native memory of the model's open arrays (parameters, gradients,
+     * optimizer state and anything leaked), as of the last completed
+     * training step or embedding batch
+     */
+    public long getNativeMemoryBytes() {
+        return nativeUsage.getBytes();
+    }
+    
+    /**
+     * Number of open arrays, sampled with {@link #getNativeMemoryBytes()}
+     */
+    public int getOpenArrayCount() {
+        return nativeUsage.getArrays();
+    }
+    
+    /**
+     * Get the latest training progress snapshot
      */
     public TrainingProgress getProgress() {
-        return progress;
+        return progress.get();
     }
     
     /**
@@ -347,6 +522,7 @@ public class SiameseEmbedding {
         if (manager != null) {
             manager.close();
         }
+        nativeUsage = ModelMemory.Usage.NONE;
     }
     
     /**
@@ -0,0 +1,72 @@
+package org.search.embedding.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-endpoint concurrency limits for the similarity endpoints. Custom
+ * lookups are cheap matrix reads; generic and compare requests may run a
+ * transformer forward pass, so they get a much smaller cap. A limit of 0
+ * turns admission control off for that endpoint.
+ */
+@Component
+public class AdmissionControl {
+
+    public static final String CUSTOM = "similarity/custom";
+    public static final String GENERIC = "similarity/generic";
+    public static final String COMPARE = "similarity/compare";
+
+    @Value("${admission.similarity.custom.max-concurrent:64}")
+    private int customMaxConcurrent = 64;
+
+    @Value("${admission.similarity.generic.max-concurrent:4}")
+    private int genericMaxConcurrent = 4;
+
+    @Value("${admission.similarity.compare.max-concurrent:4}")
+    private int compareMaxConcurrent = 4;
+
+    @Value("${admission.similarity.max-queue:32}")
+    private int maxQueue = 32;
+
+    @Value("${admission.similarity.max-wait-ms:250}")
+    private long maxWaitMs = 250;
+
+    private final Map<String, ConcurrencyLimiter> limiters = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        addLimiter(CUSTOM, customMaxConcurrent);
+        addLimiter(GENERIC, genericMaxConcurrent);
+        addLimiter(COMPARE, compareMaxConcurrent);
+    }
+
+    private void addLimiter(String endpoint, int maxConcurrent) {
+        if (maxConcurrent > 0) {
+            limiters.put(endpoint, new ConcurrencyLimiter(endpoint, maxConcurrent, maxQueue, maxWaitMs));
+        }
+    }
+
+    /**
+     * Wait for a slot on the endpoint. Returns null when the endpoint is
+     * unlimited, which try-with-resources accepts.
+     *
+     * @throws AdmissionRejectedException if the request is shed
+     */
+    public ConcurrencyLimiter.Permit admit(String endpoint) throws InterruptedException {
+        ConcurrencyLimiter limiter = limiters.get(endpoint);
+        return limiter != null ? limiter.acquire() : null;
+    }
+
+    /**
+     * Limits, queue wait and rejection counts per limited endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        limiters.forEach((endpoint, limiter) -> stats.put(endpoint, limiter.getStats()));
+        return stats;
+    }
+}
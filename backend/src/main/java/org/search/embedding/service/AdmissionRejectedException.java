@@ -0,0 +1,27 @@
+package org.search.embedding.service;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A request shed by a {@link ConcurrencyLimiter}, either because its wait
+ * queue was full or because no permit freed up in time
+ */
+public class AdmissionRejectedException extends RejectedExecutionException {
+
+    private final boolean queueFull;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, boolean queueFull, long retryAfterSeconds) {
+        super(message);
+        this.queueFull = queueFull;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public boolean isQueueFull() {
+        return queueFull;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
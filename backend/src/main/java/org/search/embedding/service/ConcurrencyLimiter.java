@@ -0,0 +1,147 @@
+package org.search.embedding.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps how many requests run at once. Callers over the cap wait in FIFO
+ * order, but only up to {@code maxQueue} of them and only for
+ * {@code maxWaitMs}; everyone else is rejected straight away, so an
+ * overload turns into fast rejections instead of a latency pile-up.
+ *
+ * Rejections carry a Retry-After hint derived from the recent mean time a
+ * permit is held and the current queue length.
+ */
+public class ConcurrencyLimiter {
+
+    private static final int SERVICE_TIME_SMOOTHING = 8; // EWMA weight 1/8 per sample
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedTimeout = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong meanServiceNanos = new AtomicLong();
+
+    public ConcurrencyLimiter(String name, int maxConcurrent, int maxQueue, long maxWaitMs) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Wait for a permit; close it when the request is done
+     *
+     * @throws AdmissionRejectedException if the queue is full or the wait times out
+     */
+    public Permit acquire() throws InterruptedException {
+        // Zero-timeout tryAcquire honours fairness, unlike the no-arg variant
+        if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            return admit();
+        }
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            rejectedQueueFull.increment();
+            throw new AdmissionRejectedException(name + " is at capacity, try again later", true, retryAfterSeconds());
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        long waited = System.nanoTime() - start;
+        queued.increment();
+        queueWaitNanos.add(waited);
+        maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+        if (!acquired) {
+            rejectedTimeout.increment();
+            throw new AdmissionRejectedException(name + " is overloaded, try again later", false, retryAfterSeconds());
+        }
+        return admit();
+    }
+
+    private Permit admit() {
+        admitted.increment();
+        return new Permit();
+    }
+
+    /**
+     * Seconds until a request queued now would likely get through, at least 1
+     */
+    long retryAfterSeconds() {
+        double backlog = (double) (waiting.get() + 1) / maxConcurrent;
+        long nanos = (long) (meanServiceNanos.get() * backlog);
+        return Math.max(1, (long) Math.ceil(nanos / 1e9));
+    }
+
+    private void recordServiceTime(long nanos) {
+        meanServiceNanos.updateAndGet(mean -> mean == 0 ? nanos : mean + (nanos - mean) / SERVICE_TIME_SMOOTHING);
+    }
+
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public Map<String, Object> getStats() {
+        long queuedCount = queued.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("maxQueue", maxQueue);
+        stats.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+        stats.put("active", getActive());
+        stats.put("waiting", getWaiting());
+        stats.put("admitted", admitted.sum());
+        stats.put("rejectedQueueFull", rejectedQueueFull.sum());
+        stats.put("rejectedTimeout", rejectedTimeout.sum());
+        stats.put("queued", queuedCount);
+        stats.put("meanQueueWaitMs", queuedCount == 0 ? 0.0 : queueWaitNanos.sum() / 1e6 / queuedCount);
+        stats.put("maxQueueWaitMs", maxQueueWaitNanos.get() / 1e6);
+        stats.put("meanServiceMs", meanServiceNanos.get() / 1e6);
+        return stats;
+    }
+
+    /**
+     * One admitted request; closing it more than once releases only once
+     */
+    public final class Permit implements AutoCloseable {
+        private final long admittedAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                recordServiceTime(System.nanoTime() - admittedAt);
+                permits.release();
+            }
+        }
+    }
+}
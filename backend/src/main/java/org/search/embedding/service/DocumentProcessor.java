@@ -1,196 +1,412 @@
 package org.search.embedding.service;
 
+import org.search.embedding.ingest.CoOccurrenceAccumulator;
+import org.search.embedding.ingest.CorpusReader;
+import org.search.embedding.ingest.CorpusStats;
+import org.search.embedding.ingest.IngestionCache;
+import org.search.embedding.ingest.PairFilter;
+import org.search.embedding.ingest.PairWindow;
+import org.search.embedding.ingest.SpillingAggregator;
+import org.search.embedding.ingest.TokenScanner;
+import org.search.embedding.ingest.TrainingSetFile;
+import org.search.embedding.ingest.WordInterner;
 import org.search.embedding.model.SiameseEmbedding.TrainingPair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 
 /**
  * Document processor that generates training pairs from text documents
- * using word proximity as a similarity signal
+ * using distance-weighted word co-occurrence as a similarity signal.
+ * Documents may be plain text, JSON Lines, gzip-compressed or zipped, and
+ * are found recursively under the documents folder.
  */
 @Service
 public class DocumentProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(DocumentProcessor.class);
 
-    private static final int MAX_DISTANCE = 5; // Maximum word distance to consider
-    private static final String[] STOP_WORDS = {
-        "a", "an", "the", "is", "are", "was", "were", "in", "on", "at", 
-        "to", "for", "of", "and", "or", "but", "with", "from", "by"
-    };
-    private static final Set<String> STOP_WORDS_SET = new HashSet<>(Arrays.asList(STOP_WORDS));
+    public static final int MAX_DISTANCE = 5; // Maximum word distance to consider
+    
+    private static final int TOKENIZER_VERSION = 1; // bump when tokenization or pair rules change
+    
+    @Value("${documents.ingest.parallelism:0}")
+    private int parallelism; // 0 = one worker per available core
+    
+    @Value("${documents.ingest.memory-budget-mb:256}")
+    private long memoryBudgetMb = 256; // pair tables above this are spilled to disk
+    
+    @Value("${documents.ingest.spill-dir:}")
+    private String spillDir; // empty = system temp directory
+    
+    @Value("${documents.min-count:1}")
+    private long minCount = 1; // words seen fewer times are dropped
+    
+    @Value("${documents.subsample-threshold:0}")
+    private double subsampleThreshold = 0; // word2vec sampling threshold, 0 = keep all pairs
+    
+    @Value("${documents.cache-dir:}")
+    private String cacheDir; // empty = no ingestion cache
+    
+    @Value("${documents.jsonl.text-field:text}")
+    private String jsonTextField = "text";
+    
+    @Autowired
+    private EmbeddingMetrics metrics = EmbeddingMetrics.noop();
     
     /**
-     * Process all documents in a folder and generate training pairs
+     * Process all documents in a folder and generate training pairs. The
+     * pairs are read from a memory-mapped training set in a temporary
+     * file, so they do not occupy heap.
      */
     public List<TrainingPair> processDocumentsFolder(String folderPath) throws IOException {
+        return processDocumentsFolderToTempFile(folderPath).getPairs();
+    }
+
+    /**
+     * Process all documents in a folder into a training set backed by a
+     * temporary file, which is removed once it is mapped
+     */
+    public TrainingSetFile processDocumentsFolderToTempFile(String folderPath) throws IOException {
+        Path parent = spillParent();
+        Path file = parent != null
+                ? Files.createTempFile(Files.createDirectories(parent), "training-set", ".bin")
+                : Files.createTempFile("training-set", ".bin");
+        try {
+            return processDocumentsFolder(folderPath, file, 0L);
+        } finally {
+            // The mapping stays valid once the name is gone
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Process all documents in a folder and stream the labelled pairs into
+     * a training set file, without holding the set in memory
+     *
+     * @param sourceFingerprint recorded in the file, see {@link #corpusFingerprint(String)}
+     */
+    public TrainingSetFile processDocumentsFolder(String folderPath, Path output, long sourceFingerprint)
+            throws IOException {
         File folder = new File(folderPath);
         if (!folder.exists() || !folder.isDirectory()) {
             throw new IOException("Invalid documents folder: " + folderPath);
         }
         
-        File[] files = folder.listFiles((dir, name) -> name.toLowerCase().endsWith(".txt"));
-        if (files == null || files.length == 0) {
-            throw new IOException("No .txt files found in: " + folderPath);
+        File[] files = CorpusReader.listDocuments(folder.toPath()).stream()
+                .map(Path::toFile)
+                .toArray(File[]::new);
+        if (files.length == 0) {
+            throw new IOException("No supported documents (.txt, .jsonl, .gz, .zip) found in: " + folderPath);
         }
         
         logger.info("Processing {} documents...", files.length);
-
-        List<TrainingPair> allPairs = new ArrayList<>();
+        long start = System.nanoTime();
+        long bytes = 0;
         for (File file : files) {
-            logger.debug("Processing: {}", file.getName());
-            List<TrainingPair> filePairs = processDocument(file.getAbsolutePath());
-            allPairs.addAll(filePairs);
+            bytes += file.length();
         }
 
-        // Deduplicate pairs
-        Map<String, TrainingPair> uniquePairs = new HashMap<>();
-        for (TrainingPair pair : allPairs) {
-            String key = getKey(pair.word1, pair.word2);
-            if (!uniquePairs.containsKey(key) || uniquePairs.get(key).similarity < pair.similarity) {
-                uniquePairs.put(key, pair);
+        IngestionCache cache = openCache();
+        PairFilter filter = new PairFilter(minCount, subsampleThreshold);
+        TrainingSetFile.Writer writer = new TrainingSetFile.Writer(output, sourceFingerprint);
+        try (SpillingAggregator spiller = new SpillingAggregator(spillParent())) {
+            CoOccurrenceAccumulator accumulator = accumulate(files, cache, spiller);
+
+            if (cache != null) {
+                int pruned = cache.prune();
+                logger.info("Ingestion cache: {} hits, {} misses, {} stale entries pruned",
+                        cache.getHits(), cache.getMisses(), pruned);
+            }
+
+            if (spiller.getRunCount() == 0) {
+                logger.info("Accumulated {} unique pairs over {} words ({} KB)",
+                        accumulator.size(), accumulator.getWords().size(), accumulator.getMemoryBytes() / 1024);
+                accumulator.writeTrainingPairs(filter, writer);
+                writer.setIngestionStats(accumulator.getTokenCount(), accumulator.getWords().size(),
+                        filter.getDroppedRare(), filter.getDroppedSampled());
+            } else {
+                spiller.spill(accumulator);
+                accumulator.clear();
+                logger.info("Spilled {} pair records over {} words in {} runs, merging",
+                        spiller.getSpilledPairs(), spiller.getWords().size(), spiller.getRunCount());
+                spiller.writeTrainingPairs(filter, writer);
+                writer.setIngestionStats(spiller.getTokenCount(), spiller.getWords().size(),
+                        filter.getDroppedRare(), filter.getDroppedSampled());
             }
+            writer.close();
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
         }
 
-        List<TrainingPair> result = new ArrayList<>(uniquePairs.values());
-        logger.info("Generated {} unique training pairs", result.size());
-        return result;
+        TrainingSetFile set = TrainingSetFile.open(output);
+        metrics.recordIngestion(bytes, set.size(), System.nanoTime() - start);
+        logger.info("Generated {} unique training pairs ({} dropped below min count, {} subsampled)",
+                set.size(), filter.getDroppedRare(), filter.getDroppedSampled());
+        return set;
     }
     
     /**
-     * Process a single document and generate training pairs
+     * Ingest a set of changed documents ahead of the next full run, so their
+     * cache entries are fresh when the folder is processed. Without a cache
+     * there is nothing to keep, and the files are left to the full run.
+     *
+     * @return number of documents ingested
      */
-    public List<TrainingPair> processDocument(String filePath) throws IOException {
-        Path path = Paths.get(filePath);
-        String content = Files.readString(path);
-        
-        // Split into sentences
-        String[] sentences = content.split("[.!?]+");
-        
-        List<TrainingPair> pairs = new ArrayList<>();
-        
-        for (String sentence : sentences) {
-            List<TrainingPair> sentencePairs = processSentence(sentence);
-            pairs.addAll(sentencePairs);
+    public int ingestDocuments(List<Path> paths) throws IOException {
+        IngestionCache cache = openCache();
+        File[] files = paths.stream()
+                .filter(Files::isRegularFile)
+                .filter(CorpusReader::isSupported)
+                .map(Path::toFile)
+                .toArray(File[]::new);
+        if (cache == null || files.length == 0) {
+            return 0;
         }
-        
-        return pairs;
+        // Only the cache entries are kept, so anything spilled is thrown away
+        try (SpillingAggregator spiller = new SpillingAggregator(spillParent())) {
+            accumulate(files, cache, spiller);
+        }
+        logger.info("Ingested {} changed documents ({} cache hits)", files.length, cache.getHits());
+        return files.length;
     }
     
     /**
-     * Process a sentence and generate word pairs based on proximity
+     * Cheap fingerprint of the documents under a folder and the settings
+     * that shape the training set, built from file names, sizes and
+     * modification times without reading any content
      */
-    private List<TrainingPair> processSentence(String sentence) {
-        List<TrainingPair> pairs = new ArrayList<>();
-        
-        // Tokenize and clean
-        List<String> words = tokenize(sentence);
-        if (words.size() < 2) {
-            return pairs;
+    public long corpusFingerprint(String folderPath) throws IOException {
+        long hash = Objects.hash(TOKENIZER_VERSION, MAX_DISTANCE, jsonTextField, minCount, subsampleThreshold);
+        for (Path document : CorpusReader.listDocuments(Paths.get(folderPath))) {
+            hash = 31 * hash + document.toAbsolutePath().toString().hashCode();
+            hash = 31 * hash + Files.size(document);
+            hash = 31 * hash + Files.getLastModifiedTime(document).toMillis();
         }
-        
-        // Generate pairs based on distance
-        for (int i = 0; i < words.size(); i++) {
-            for (int j = i + 1; j < words.size() && j <= i + MAX_DISTANCE; j++) {
-                String word1 = words.get(i);
-                String word2 = words.get(j);
-                
-                // Calculate similarity based on inverse distance
-                int distance = j - i;
-                float similarity = 1.0f / distance;
-                
-                pairs.add(new TrainingPair(word1, word2, similarity));
-            }
+        return hash;
+    }
+    
+    private Path spillParent() {
+        return spillDir == null || spillDir.isBlank() ? null : Paths.get(spillDir);
+    }
+    
+    private IngestionCache openCache() throws IOException {
+        if (cacheDir == null || cacheDir.isBlank()) {
+            return null;
+        }
+        return new IngestionCache(Paths.get(cacheDir), Objects.hash(TOKENIZER_VERSION, MAX_DISTANCE, jsonTextField));
+    }
+    
+    private CoOccurrenceAccumulator accumulate(File[] files, IngestionCache cache, SpillingAggregator spiller)
+            throws IOException {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // Each worker may hold a table plus the one it is merging in, so give it half its share
+        long spillThreshold = memoryBudgetMb * 1024 * 1024 / (2L * threads);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new IngestTask(files, 0, files.length, cache, spiller, spillThreshold));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
         }
-        
-        return pairs;
     }
     
     /**
-     * Tokenize sentence into words
+     * Fork-join task over a range of files. Each leaf accumulates one file
+     * into its own co-occurrence table, and sibling tables are merged on the
+     * way back up, so workers never contend on a shared map. A table that
+     * outgrows the spill threshold is written out as a sorted run and
+     * replaced by an empty one, both while a document is being read and
+     * after merging.
      */
-    private List<String> tokenize(String sentence) {
-        // Remove punctuation and convert to lowercase
-        String cleaned = sentence.toLowerCase()
-                .replaceAll("[^a-z0-9\\s-]", " ")
-                .replaceAll("\\s+", " ")
-                .trim();
-        
-        if (cleaned.isEmpty()) {
-            return new ArrayList<>();
+    private class IngestTask extends RecursiveTask<CoOccurrenceAccumulator> {
+        private final File[] files;
+        private final int from;
+        private final int to;
+        private final IngestionCache cache;
+        private final SpillingAggregator spiller;
+        private final long spillThreshold;
+
+        IngestTask(File[] files, int from, int to, IngestionCache cache,
+                   SpillingAggregator spiller, long spillThreshold) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.cache = cache;
+            this.spiller = spiller;
+            this.spillThreshold = spillThreshold;
+        }
+
+        @Override
+        protected CoOccurrenceAccumulator compute() {
+            CoOccurrenceAccumulator result = accumulateRange();
+            if (spiller == null || result.size() == 0 || result.getMemoryBytes() <= spillThreshold) {
+                return result;
+            }
+            try {
+                spiller.spill(result);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new CoOccurrenceAccumulator();
+        }
+
+        private CoOccurrenceAccumulator accumulateRange() {
+            if (to - from == 1) {
+                File file = files[from];
+                logger.debug("Processing: {}", file.getName());
+                try {
+                    CoOccurrenceAccumulator accumulator = cache != null
+                            ? cache.getOrLoad(file.toPath(), this::accumulateDocument)
+                            : accumulateDocument(file.toPath());
+                    // A document that was spilled while reading has nothing left to merge
+                    return accumulator != null ? accumulator : new CoOccurrenceAccumulator();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            int mid = (from + to) >>> 1;
+            IngestTask left = new IngestTask(files, from, mid, cache, spiller, spillThreshold);
+            left.fork();
+            CoOccurrenceAccumulator right = new IngestTask(files, mid, to, cache, spiller, spillThreshold).compute();
+            CoOccurrenceAccumulator merged = left.join();
+
+            // Fold the smaller table into the larger one
+            if (merged.size() < right.size()) {
+                CoOccurrenceAccumulator swap = merged;
+                merged = right;
+                right = swap;
+            }
+            merged.mergeFrom(right);
+            return merged;
+        }
+
+        /**
+         * Stream one document into its own accumulator. If the table has to
+         * be spilled part way, the rest is spilled too and null is returned,
+         * since the document's pairs are then split across runs.
+         */
+        private CoOccurrenceAccumulator accumulateDocument(Path path) throws IOException {
+            CoOccurrenceAccumulator accumulator = new CoOccurrenceAccumulator();
+            if (spiller == null) {
+                scanDocument(path, new PairWindow(accumulator.getWords(), MAX_DISTANCE, accumulator));
+                return accumulator;
+            }
+            SpillingWindow window = new SpillingWindow(accumulator, spiller, spillThreshold);
+            try {
+                scanDocument(path, window);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (!window.spilled) {
+                return accumulator;
+            }
+            spiller.spill(accumulator);
+            return null;
         }
-        
-        // Split into words and filter
-        return Arrays.stream(cleaned.split("\\s+"))
-                .filter(word -> word.length() > 2) // Minimum word length
-                .filter(word -> !STOP_WORDS_SET.contains(word)) // Remove stop words
-                .filter(word -> !word.matches("\\d+")) // Remove pure numbers
-                .collect(Collectors.toList());
     }
     
     /**
-     * Create a unique key for a word pair (order-independent)
+     * Pair window that checks the accumulator's size at every sentence
+     * boundary, where the window is empty and word IDs can be reset, and
+     * spills it once it passes the threshold
      */
-    private String getKey(String word1, String word2) {
-        if (word1.compareTo(word2) < 0) {
-            return word1 + "|" + word2;
-        } else {
-            return word2 + "|" + word1;
+    private static class SpillingWindow implements TokenScanner.TokenHandler {
+        private final CoOccurrenceAccumulator accumulator;
+        private final SpillingAggregator spiller;
+        private final long spillThreshold;
+        private final PairWindow window;
+        private boolean spilled = false;
+
+        SpillingWindow(CoOccurrenceAccumulator accumulator, SpillingAggregator spiller, long spillThreshold) {
+            this.accumulator = accumulator;
+            this.spiller = spiller;
+            this.spillThreshold = spillThreshold;
+            this.window = new PairWindow(accumulator.getWords(), MAX_DISTANCE, accumulator);
+        }
+
+        @Override
+        public void onToken(char[] chars, int start, int length) {
+            window.onToken(chars, start, length);
+        }
+
+        @Override
+        public void onSentenceEnd() {
+            window.onSentenceEnd();
+            if (accumulator.size() == 0 || accumulator.getMemoryBytes() <= spillThreshold) {
+                return;
+            }
+            try {
+                spiller.spill(accumulator);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            accumulator.clear();
+            spilled = true;
         }
     }
     
     /**
-     * Get statistics about processed documents
+     * Process a single document and generate training pairs
+     */
+    public List<TrainingPair> processDocument(String filePath) throws IOException {
+        List<TrainingPair> pairs = new ArrayList<>();
+        processDocument(filePath, pairs::add);
+        return pairs;
+    }
+    
+    /**
+     * Stream a single document and emit its training pairs to the consumer.
+     * The file is read incrementally, so memory use is bounded by the pair
+     * window rather than by the file size.
+     */
+    public void processDocument(String filePath, Consumer<TrainingPair> consumer) throws IOException {
+        WordInterner words = new WordInterner();
+        scanDocument(Paths.get(filePath), new PairWindow(words, MAX_DISTANCE, (word1, word2, similarity) ->
+                consumer.accept(new TrainingPair(words.word(word1), words.word(word2), similarity))));
+    }
+    
+    private void scanDocument(Path path, TokenScanner.TokenHandler handler) throws IOException {
+        new CorpusReader(jsonTextField).scan(path, new TokenScanner(), handler);
+    }
+    
+    /**
+     * Pairs of a single sentence, the unit the streaming document path
+     * must reproduce
+     */
+    List<TrainingPair> processSentence(String sentence) {
+        List<TrainingPair> pairs = new ArrayList<>();
+        WordInterner words = new WordInterner();
+        new TokenScanner().scan(sentence, new PairWindow(words, MAX_DISTANCE, (word1, word2, similarity) ->
+                pairs.add(new TrainingPair(words.word(word1), words.word(word2), similarity))));
+        return pairs;
+    }
+    
+    /**
+     * Get statistics about processed documents, gathered in a single pass
      */
     public Map<String, Object> getProcessingStats(List<TrainingPair> pairs) {
-        Map<String, Object> stats = new HashMap<>();
-        
-        Set<String> uniqueWords = new HashSet<>();
-        Map<String, Integer> wordFrequency = new HashMap<>();
-        
-        float avgSimilarity = 0f;
-        float maxSimilarity = 0f;
-        float minSimilarity = 1f;
-        
-        for (TrainingPair pair : pairs) {
-            uniqueWords.add(pair.word1);
-            uniqueWords.add(pair.word2);
-            
-            wordFrequency.put(pair.word1, wordFrequency.getOrDefault(pair.word1, 0) + 1);
-            wordFrequency.put(pair.word2, wordFrequency.getOrDefault(pair.word2, 0) + 1);
-            
-            avgSimilarity += pair.similarity;
-            maxSimilarity = Math.max(maxSimilarity, pair.similarity);
-            minSimilarity = Math.min(minSimilarity, pair.similarity);
-        }
-        
-        avgSimilarity /= pairs.size();
-        
-        // Get top 10 most frequent words
-        List<Map.Entry<String, Integer>> topWords = wordFrequency.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(10)
-                .collect(Collectors.toList());
-        
-        stats.put("totalPairs", pairs.size());
-        stats.put("uniqueWords", uniqueWords.size());
-        stats.put("avgSimilarity", avgSimilarity);
-        stats.put("maxSimilarity", maxSimilarity);
-        stats.put("minSimilarity", minSimilarity);
-        stats.put("topWords", topWords.stream()
-                .map(e -> e.getKey() + " (" + e.getValue() + ")")
-                .collect(Collectors.toList()));
-        
-        return stats;
+        return CorpusStats.of(pairs).toMap();
     }
     
     /**
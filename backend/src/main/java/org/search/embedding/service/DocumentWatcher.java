@@ -0,0 +1,207 @@
+package org.search.embedding.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.search.embedding.ingest.CorpusReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Optional watcher on the documents folder. File events are debounced into
+ * batches; each batch is ingested ahead of time so its cache entries are
+ * fresh, and then a training job is submitted. The job service folds
+ * refreshes that arrive while a job is still queued into that job.
+ */
+@Service
+public class DocumentWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentWatcher.class);
+
+    @Autowired
+    private DocumentProcessor documentProcessor;
+
+    @Autowired
+    private TrainingJobService trainingJobService;
+
+    @Value("${documents.watch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${documents.watch.debounce-ms:2000}")
+    private long debounceMs;
+
+    @Value("${documents.folder:src/main/resources/documents}")
+    private String documentsFolder;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private WatchService watchService;
+    private Thread watchThread;
+    private final ScheduledExecutorService debouncer = Executors.newSingleThreadScheduledExecutor(
+            runnable -> WorkerThreads.newThread(runnable, "document-watch-debounce", virtualThreads));
+
+    private final Set<Path> pendingFiles = new LinkedHashSet<>();
+    private ScheduledFuture<?> pendingFlush;
+    private volatile long lastIngestionMillis = -1;
+    private volatile long lastBatchAt = 0;
+    private volatile String lastJobId;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path folder = Paths.get(documentsFolder);
+        watchService = FileSystems.getDefault().newWatchService();
+        registerTree(folder);
+
+        watchThread = WorkerThreads.newThread(() -> watchLoop(folder), "document-watch", virtualThreads);
+        watchThread.start();
+        logger.info("Watching {} for document changes (debounce {} ms)", folder, debounceMs);
+    }
+
+    /**
+     * Register a directory and all of its subdirectories. Watch keys are
+     * per directory, so nested folders have to be registered one by one.
+     */
+    private void registerTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            }
+        }
+    }
+
+    private void watchLoop(Path folder) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                List<Path> changed = new ArrayList<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        // Events were lost; a refresh re-reads the whole folder anyway
+                        changed.add(folder);
+                        continue;
+                    }
+                    Path file = ((Path) key.watchable()).resolve((Path) event.context());
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+                        registerNewDirectory(file, changed);
+                    } else if (CorpusReader.isSupported(file)) {
+                        changed.add(file);
+                    }
+                }
+                key.reset();
+                if (!changed.isEmpty()) {
+                    onChanged(changed);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    private void registerNewDirectory(Path dir, List<Path> changed) {
+        try {
+            registerTree(dir);
+            // Files may have landed before the directory was registered
+            changed.addAll(CorpusReader.listDocuments(dir));
+        } catch (IOException e) {
+            logger.warn("Could not watch new directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * Record changed files and restart the debounce timer
+     */
+    synchronized void onChanged(List<Path> files) {
+        pendingFiles.addAll(files);
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+        }
+        pendingFlush = debouncer.schedule(this::flush, debounceMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        List<Path> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pendingFiles);
+            pendingFiles.clear();
+            pendingFlush = null;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            documentProcessor.ingestDocuments(batch);
+        } catch (Exception e) {
+            logger.warn("Error ingesting changed documents: {}", e.getMessage(), e);
+        }
+        lastIngestionMillis = System.currentTimeMillis() - start;
+        lastBatchAt = System.currentTimeMillis();
+        logger.info("Ingested batch of {} changed files in {} ms", batch.size(), lastIngestionMillis);
+
+        queueRefresh();
+    }
+
+    private void queueRefresh() {
+        try {
+            lastJobId = trainingJobService.submit("watcher").getId();
+        } catch (RejectedExecutionException e) {
+            logger.warn("Training queue is full; skipping refresh for this batch");
+        }
+    }
+
+    /**
+     * Get watcher state for the status endpoint
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("pendingFiles", pendingFiles.size());
+        status.put("queueDepth", trainingJobService.getQueuedCount());
+        status.put("lastIngestionMillis", lastIngestionMillis);
+        status.put("lastBatchAt", lastBatchAt);
+        status.put("lastJobId", lastJobId);
+        return status;
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+        if (watchService != null) {
+            watchService.close();
+        }
+        debouncer.shutdownNow();
+    }
+}
@@ -0,0 +1,106 @@
+package org.search.embedding.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer meters for model calls, training and ingestion. Per-endpoint
+ * request latency comes from Spring's own http.server.requests timer.
+ *
+ * Services default to {@link #noop()}, so instances built outside Spring
+ * (unit tests) record into a registry with no backends.
+ */
+@Component
+public class EmbeddingMetrics {
+
+    private static final EmbeddingMetrics NOOP = new EmbeddingMetrics(new CompositeMeterRegistry());
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> modelCalls = new ConcurrentHashMap<>();
+
+    private final Timer epochDuration;
+    private final Counter trainingPairs;
+    private final AtomicLong trainingPairsPerSecond = new AtomicLong();
+
+    private final Timer ingestionDuration;
+    private final Counter ingestionBytes;
+    private final DistributionSummary ingestionPairs;
+    private final AtomicLong ingestionBytesPerSecond = new AtomicLong();
+
+    public EmbeddingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        epochDuration = Timer.builder("embedding.training.epoch")
+                .description("Duration of one training epoch")
+                .publishPercentileHistogram()
+                .register(registry);
+        trainingPairs = Counter.builder("embedding.training.pairs")
+                .description("Training pairs processed, counted once per epoch")
+                .register(registry);
+        Gauge.builder("embedding.training.pairs.per.second", trainingPairsPerSecond, AtomicLong::get)
+                .description("Training throughput of the last finished epoch")
+                .register(registry);
+
+        ingestionDuration = Timer.builder("embedding.ingestion.duration")
+                .description("Duration of a full document folder ingestion")
+                .register(registry);
+        ingestionBytes = Counter.builder("embedding.ingestion.bytes")
+                .description("Document bytes read by ingestion, as stored on disk")
+                .baseUnit("bytes")
+                .register(registry);
+        ingestionPairs = DistributionSummary.builder("embedding.ingestion.pairs")
+                .description("Training pairs produced per ingestion run")
+                .register(registry);
+        Gauge.builder("embedding.ingestion.bytes.per.second", ingestionBytesPerSecond, AtomicLong::get)
+                .description("Ingestion throughput of the last run")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public static EmbeddingMetrics noop() {
+        return NOOP;
+    }
+
+    /**
+     * Time of one model call, e.g. model "custom" and operation "similarity"
+     */
+    public void recordModelCall(String model, String operation, long nanos) {
+        modelCalls.computeIfAbsent(model + '/' + operation, key -> Timer.builder("embedding.model.call")
+                        .description("Model computation time, excluding coalesced waiters")
+                        .tag("model", model)
+                        .tag("operation", operation)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Matches {@link org.search.embedding.model.SiameseEmbedding.EpochListener}
+     */
+    public void recordEpoch(int epoch, int pairs, long nanos) {
+        epochDuration.record(nanos, TimeUnit.NANOSECONDS);
+        trainingPairs.increment(pairs);
+        trainingPairsPerSecond.set(perSecond(pairs, nanos));
+    }
+
+    public void recordIngestion(long bytes, long pairs, long nanos) {
+        ingestionDuration.record(nanos, TimeUnit.NANOSECONDS);
+        ingestionBytes.increment(bytes);
+        ingestionPairs.record(pairs);
+        ingestionBytesPerSecond.set(perSecond(bytes, nanos));
+    }
+
+    private static long perSecond(long amount, long nanos) {
+        return nanos > 0 ? (long) (amount * 1e9 / nanos) : 0;
+    }
+}
@@ -1,6 +1,9 @@
 package org.search.embedding.service;
 
 import jakarta.annotation.PreDestroy;
+import org.search.embedding.ingest.TrainingSetFile;
+import org.search.embedding.model.EmbeddingExporter;
+import org.search.embedding.model.FrontCodedDictionary;
 import org.search.embedding.model.SiameseEmbedding;
 import org.search.embedding.model.SiameseEmbedding.TrainingPair;
 import org.slf4j.Logger;
@@ -9,8 +12,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 /**
  * Service for managing custom embedding model training and inference
@@ -23,6 +35,15 @@ public class EmbeddingService {
     @Autowired
     private DocumentProcessor documentProcessor;
     
+    @Autowired
+    private GenericEmbeddingService genericEmbeddingService;
+    
+    @Autowired
+    private TrainingEventBroadcaster trainingEventBroadcaster;
+    
+    @Autowired
+    private EmbeddingMetrics metrics = EmbeddingMetrics.noop();
+    
     @Value("${embedding.dimension:16}")
     private int embedDim;
     
@@ -38,43 +59,149 @@ public class EmbeddingService {
     @Value("${documents.folder:src/main/resources/documents}")
     private String documentsFolder;
     
-    private SiameseEmbedding model;
-    private List<TrainingPair> trainingPairs;
+    @Value("${embedding.ndarray.debug-scopes:false}")
+    private boolean debugScopes; // log arrays that escape their training step
+    
+    @Value("${embedding.training-set-file:}")
+    private String trainingSetFile; // empty = always ingest the documents
+    
+    private volatile SiameseEmbedding model;
+    private volatile SiameseEmbedding trainingModel; // set while a new model trains
+    private volatile Map<String, Object> trainingStats; // computed once per training set
+    private final SingleFlight<String, Float> similarityFlights = new SingleFlight<>();
+    private final SingleFlight<String, float[]> embeddingFlights = new SingleFlight<>();
+    // A lock rather than synchronized: training blocks on I/O for a long time,
+    // which would pin a virtual thread's carrier inside a monitor
+    private final ReentrantLock trainingLock = new ReentrantLock();
     
     /**
      * Train the embedding model on documents in the configured folder
      */
-    public synchronized void trainModel() throws Exception {
-        if (model != null && model.isTrained()) {
-            logger.info("Model already trained. Creating new instance...");
-            model.close();
+    public void trainModel() throws Exception {
+        trainModel(() -> false);
+    }
+    
+    /**
+     * Train the embedding model on documents in the configured folder,
+     * giving up with a CancellationException once the check returns true.
+     * The current model keeps serving requests until the new one is ready.
+     */
+    public void trainModel(BooleanSupplier cancelled) throws Exception {
+        trainingLock.lockInterruptibly();
+        try {
+            List<TrainingPair> pairs;
+            Map<String, Object> ingestion;
+            try {
+                TrainingSetFile set = loadTrainingSet();
+                pairs = set.getPairs();
+                ingestion = set.getIngestionStats();
+            } catch (Exception e) {
+                logger.error("Error processing documents: {}", e.getMessage(), e);
+                logger.info("Using sample training pairs instead...");
+                pairs = documentProcessor.createSamplePairs();
+                ingestion = Map.of();
+            }
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Training cancelled");
+            }
+            train(pairs, ingestion, cancelled);
+        } finally {
+            trainingLock.unlock();
         }
-
-        // Process documents
-        logger.info("Processing documents from: {}", documentsFolder);
+    }
+    
+    /**
+     * Train the embedding model directly from a saved training set file
+     */
+    public void trainModel(Path trainingSet) throws Exception {
+        trainingLock.lockInterruptibly();
         try {
-            trainingPairs = documentProcessor.processDocumentsFolder(documentsFolder);
-        } catch (Exception e) {
-            logger.error("Error processing documents: {}", e.getMessage(), e);
-            logger.info("Using sample training pairs instead...");
-            trainingPairs = documentProcessor.createSamplePairs();
+            TrainingSetFile file = TrainingSetFile.open(trainingSet);
+            logger.info("Loaded {} training pairs over {} words from {}",
+                    file.size(), file.getVocabulary().size(), trainingSet);
+            train(file.getPairs(), file.getIngestionStats(), () -> false);
+        } finally {
+            trainingLock.unlock();
+        }
+    }
+    
+    /**
+     * Reuse the saved training set when it was built from the current
+     * documents and settings; otherwise ingest the documents straight into
+     * that file, so the pairs are read back from disk and kept for the next
+     * start. Without a configured file the set lives in a temporary one.
+     */
+    private TrainingSetFile loadTrainingSet() throws IOException {
+        if (trainingSetFile == null || trainingSetFile.isBlank()) {
+            logger.info("Processing documents from: {}", documentsFolder);
+            return documentProcessor.processDocumentsFolderToTempFile(documentsFolder);
+        }
+
+        Path file = Paths.get(trainingSetFile);
+        long fingerprint = documentProcessor.corpusFingerprint(documentsFolder);
+        if (Files.exists(file)) {
+            Long saved = TrainingSetFile.readSourceFingerprint(file);
+            if (saved != null && saved == fingerprint) {
+                try {
+                    TrainingSetFile set = TrainingSetFile.open(file);
+                    logger.info("Reusing training set {} ({} pairs)", file, set.size());
+                    return set;
+                } catch (IOException e) {
+                    logger.warn("Ignoring unreadable training set {}: {}", file, e.getMessage());
+                }
+            }
         }
 
-        if (trainingPairs.isEmpty()) {
+        logger.info("Processing documents from: {} into {}", documentsFolder, file);
+        return documentProcessor.processDocumentsFolder(documentsFolder, file, fingerprint);
+    }
+    
+    private void train(List<TrainingPair> pairs, Map<String, Object> ingestion, BooleanSupplier cancelled)
+            throws Exception {
+        if (pairs.isEmpty()) {
             throw new IllegalStateException("No training pairs generated");
         }
+        Map<String, Object> stats = computeTrainingStats(pairs, ingestion);
 
-        // Create and train model
-        model = createModel(embedDim, margin, epochs, learningRate);
-        model.train(trainingPairs);
+        // Create and train the new model next to the current one
+        SiameseEmbedding candidate = createModel(embedDim, margin, epochs, learningRate);
+        candidate.setProgressListener(trainingEventBroadcaster::onProgress);
+        candidate.setEpochListener(metrics::recordEpoch);
+        candidate.setDebugScopes(debugScopes);
+        trainingModel = candidate;
+        try {
+            candidate.train(pairs, cancelled);
+        } catch (Exception e) {
+            candidate.close();
+            throw e;
+        } finally {
+            trainingModel = null;
+        }
+
+        SiameseEmbedding previous = model;
+        model = candidate;
+        trainingStats = stats;
+        if (previous != null) {
+            logger.info("Replacing previously trained model");
+            previous.close();
+        }
 
         logger.info("Model training completed successfully");
+
+        // Warm the generic side of compare requests in the background
+        genericEmbeddingService.precomputeVocabulary(candidate.getVocabulary());
     }
     
     /**
-     * Calculate similarity between two words using custom model
+     * Calculate similarity between two words using custom model. Identical
+     * concurrent queries share one computation.
      */
     public float calculateCustomSimilarity(String word1, String word2) throws Exception {
+        return similarityFlights.execute(word1 + '\u0000' + word2, () -> computeCustomSimilarity(word1, word2));
+    }
+    
+    private float computeCustomSimilarity(String word1, String word2) throws Exception {
+        SiameseEmbedding model = this.model;
         if (model == null || !model.isTrained()) {
             throw new IllegalStateException("Model not trained yet. Please train the model first.");
         }
@@ -87,13 +214,22 @@ public class EmbeddingService {
             throw new IllegalArgumentException("Word not in vocabulary: " + word2);
         }
         
-        return model.calculateSimilarity(word1, word2);
+        long start = System.nanoTime();
+        float similarity = model.calculateSimilarity(word1, word2);
+        metrics.recordModelCall("custom", "similarity", System.nanoTime() - start);
+        return similarity;
     }
     
     /**
-     * Get embedding vector for a word
+     * Get embedding vector for a word. Identical concurrent queries share one
+     * lookup and therefore one array, which callers must not modify.
      */
     public float[] getEmbedding(String word) throws Exception {
+        return embeddingFlights.execute(word, () -> computeEmbedding(word));
+    }
+    
+    private float[] computeEmbedding(String word) throws Exception {
+        SiameseEmbedding model = this.model;
         if (model == null || !model.isTrained()) {
             throw new IllegalStateException("Model not trained yet");
         }
@@ -102,7 +238,20 @@ public class EmbeddingService {
             throw new IllegalArgumentException("Word not in vocabulary: " + word);
         }
         
-        return model.getEmbedding(word);
+        long start = System.nanoTime();
+        float[] embedding = model.getEmbedding(word);
+        metrics.recordModelCall("custom", "embedding", System.nanoTime() - start);
+        return embedding;
+    }
+    
+    /**
+     * Calls, coalesced calls and in-flight computations per query type
+     */
+    public Map<String, Object> getCoalescingStats() {
+        return Map.of(
+            "similarity", similarityFlights.getStats(),
+            "embedding", embeddingFlights.getStats()
+        );
     }
     
     /**
@@ -115,18 +264,69 @@ public class EmbeddingService {
         return model.getVocabulary();
     }
     
+    /**
+     * Get the vocabulary dictionary of the current model, or an empty one
+     */
+    public FrontCodedDictionary getDictionary() {
+        SiameseEmbedding model = this.model;
+        return model != null ? model.getDictionary() : FrontCodedDictionary.empty();
+    }
+    
+    /**
+     * Exporter over the current model. It keeps serving the model it was
+     * created from even if training replaces that model meanwhile.
+     */
+    public EmbeddingExporter getExporter() {
+        SiameseEmbedding model = this.model;
+        if (model == null || !model.isTrained()) {
+            throw new IllegalStateException("Model not trained yet");
+        }
+        return new EmbeddingExporter(model.getVocabulary(), model.getEmbeddingMatrix());
+    }
+    
     /**
      * Get training progress
      */
     public SiameseEmbedding.TrainingProgress getProgress() {
+        SiameseEmbedding training = trainingModel;
+        if (training != null) {
+            return training.getProgress();
+        }
+        SiameseEmbedding model = this.model;
         if (model == null) {
-            SiameseEmbedding.TrainingProgress progress = new SiameseEmbedding.TrainingProgress();
-            progress.status = "Model not initialized";
-            return progress;
+            return new SiameseEmbedding.TrainingProgress().withStatus(false, "Model not initialized");
         }
         return model.getProgress();
     }
     
+    /**
+     * Estimated native memory of the model being trained, or of the serving
+     * model when none is, 0 before the first training
+     */
+    public long getNativeMemoryBytes() {
+        SiameseEmbedding model = watchedModel();
+        return model != null ? model.getNativeMemoryBytes() : 0;
+    }
+    
+    /**
+     * Open native arrays of the model being trained, or of the serving
+     * model when none is, 0 before the first training
+     */
+    public int getOpenArrayCount() {
+        SiameseEmbedding model = watchedModel();
+        return model != null ? model.getOpenArrayCount() : 0;
+    }
+    
+    /**
+     * The model whose native usage the gauges follow. A candidate's arrays
+     * change every step while the serving model's stay put, so a leak only
+     * shows on the candidate.
+     */
+    private SiameseEmbedding watchedModel() {
+        SiameseEmbedding training = trainingModel;
+        return training != null ? training : model;
+    }
+    
     /**
      * Check if model is trained
      */
@@ -138,10 +338,23 @@ public class EmbeddingService {
      * Get training statistics
      */
     public Map<String, Object> getTrainingStats() {
-        if (trainingPairs == null) {
+        Map<String, Object> stats = trainingStats;
+        if (stats == null) {
             return Map.of("error", "No training data available");
         }
-        return documentProcessor.getProcessingStats(trainingPairs);
+        return stats;
+    }
+    
+    /**
+     * One pass over the pairs when a training set is adopted; status
+     * requests then return the cached result. Ingestion counts come with
+     * the training set itself, and are marked unavailable for sample pairs
+     * or a set saved without them.
+     */
+    private Map<String, Object> computeTrainingStats(List<TrainingPair> pairs, Map<String, Object> ingestion) {
+        Map<String, Object> stats = new HashMap<>(documentProcessor.getProcessingStats(pairs));
+        stats.put("ingestion", ingestion.isEmpty() ? Map.of("available", false) : ingestion);
+        return Collections.unmodifiableMap(stats);
     }
     
     /**
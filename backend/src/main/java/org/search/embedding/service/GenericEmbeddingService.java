@@ -8,16 +8,71 @@ import ai.djl.repository.zoo.ZooModel;
 import ai.djl.translate.TranslateException;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import org.search.embedding.model.EmbeddingMatrix;
+import org.search.embedding.model.ModelMemory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 
 @Service
 public class GenericEmbeddingService {
 
+    private static final Logger logger = LoggerFactory.getLogger(GenericEmbeddingService.class);
+
     private static final String MODEL_NAME = "sentence-transformers/all-MiniLM-L6-v2";
 
+    @Value("${generic.precompute.batch-size:256}")
+    private int precomputeBatchSize;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Autowired
+    private EmbeddingMetrics metrics = EmbeddingMetrics.noop();
+
     private ZooModel<String, float[]> model;
     private Predictor<String, float[]> predictor;
+    private volatile ModelMemory.Usage nativeUsage = ModelMemory.Usage.NONE;
+    private volatile long nativeBytes = 0;
+
+    private final ExecutorService precomputeExecutor = Executors.newSingleThreadExecutor(
+            runnable -> WorkerThreads.newThread(runnable, "generic-precompute", virtualThreads));
+    private volatile VocabularyCache vocabularyCache;
+    private Future<?> precomputeTask;
+    private final SingleFlight<String, float[]> predictions = new SingleFlight<>();
+
+    /**
+     * Generic embeddings of the custom vocabulary, row i holding the word at
+     * custom vocabulary index i. Rows are filled in order by the background
+     * job; completedRows is published after each batch.
+     */
+    private static class VocabularyCache {
+        final List<String> vocabulary;
+        final long startedAt = System.currentTimeMillis();
+        volatile EmbeddingMatrix matrix;
+        volatile int completedRows = 0;
+        volatile String state = "Queued";
+
+        VocabularyCache(List<String> vocabulary) {
+            this.vocabulary = vocabulary;
+        }
+
+        int readyIndexOf(String word) {
+            int idx = Collections.binarySearch(vocabulary, word);
+            return idx >= 0 && idx < completedRows ? idx : -1;
+        }
+    }
 
     @PostConstruct
     public void init() throws Exception {
@@ -31,18 +86,155 @@ public class GenericEmbeddingService {
 
         model = criteria.loadModel();
         predictor = model.newPredictor();
+        // Sampled once, before requests start using the model's manager. A
+        // TorchScript module keeps its weights natively rather than as
+        // managed arrays, so count its parameters as well.
+        nativeUsage = ModelMemory.usage(model.getNDManager());
+        nativeBytes = Math.max(nativeUsage.getBytes(), ModelMemory.parameterBytes(model.getBlock()));
     }
 
     public float calculateGenericSimilarity(String text1, String text2) {
+        long start = System.nanoTime();
+        VocabularyCache cache = vocabularyCache;
+        if (cache != null && cache.matrix != null) {
+            int idx1 = cache.readyIndexOf(text1);
+            int idx2 = cache.readyIndexOf(text2);
+            if (idx1 >= 0 && idx2 >= 0) {
+                float similarity = cache.matrix.cosine(idx1, idx2);
+                metrics.recordModelCall("generic", "similarity-cached", System.nanoTime() - start);
+                return similarity;
+            }
+        }
+
+        float[] emb1 = embed(text1);
+        float[] emb2 = embed(text2);
+        float similarity = cosineSimilarity(emb1, emb2);
+        metrics.recordModelCall("generic", "similarity", System.nanoTime() - start);
+        return similarity;
+    }
+
+    /**
+     * Run the model on one text. Concurrent requests for the same text share
+     * one forward pass, so the returned vector must not be modified.
+     */
+    private float[] embed(String text) {
         try {
-            float[] emb1 = predictor.predict(text1);
-            float[] emb2 = predictor.predict(text2);
-            return cosineSimilarity(emb1, emb2);
+            return predictions.execute(text, () -> {
+                long start = System.nanoTime();
+                float[] embedding = predictor.predict(text);
+                metrics.recordModelCall("generic", "predict", System.nanoTime() - start);
+                return embedding;
+            });
         } catch (TranslateException e) {
             throw new RuntimeException("Failed to compute embeddings", e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to compute embeddings", e);
+        }
+    }
+
+    /**
+     * Calls, coalesced calls and in-flight computations of model predictions
+     */
+    public Map<String, Object> getCoalescingStats() {
+        return Map.of("prediction", predictions.getStats());
+    }
+
+    /**
+     * Start a background job embedding every word of the custom vocabulary.
+     * The vocabulary must be sorted, as returned by the custom model, so rows
+     * line up with custom vocabulary indices. Any job still running for a
+     * previous vocabulary is cancelled.
+     */
+    public synchronized void precomputeVocabulary(List<String> vocabulary) {
+        if (precomputeTask != null) {
+            precomputeTask.cancel(true);
+        }
+        VocabularyCache cache = new VocabularyCache(List.copyOf(vocabulary));
+        vocabularyCache = cache;
+        precomputeTask = precomputeExecutor.submit(() -> runPrecompute(cache));
+    }
+
+    private void runPrecompute(VocabularyCache cache) {
+        int size = cache.vocabulary.size();
+        logger.info("Precomputing generic embeddings for {} vocabulary words", size);
+        cache.state = "Running";
+
+        // Predictors are not thread-safe, so the job uses its own
+        try (Predictor<String, float[]> batchPredictor = model.newPredictor()) {
+            for (int start = 0; start < size; start += precomputeBatchSize) {
+                if (Thread.currentThread().isInterrupted()) {
+                    cache.state = "Cancelled";
+                    return;
+                }
+                int end = Math.min(start + precomputeBatchSize, size);
+                List<float[]> batch = batchPredictor.batchPredict(cache.vocabulary.subList(start, end));
+
+                EmbeddingMatrix matrix = cache.matrix;
+                if (matrix == null) {
+                    matrix = new EmbeddingMatrix(size, batch.get(0).length);
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    matrix.setRow(start + i, batch.get(i));
+                }
+                cache.matrix = matrix;
+                cache.completedRows = end;
+            }
+            cache.state = "Completed";
+            logger.info("Generic embeddings precomputed in {} ms",
+                    System.currentTimeMillis() - cache.startedAt);
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                cache.state = "Cancelled";
+                return;
+            }
+            cache.state = "Failed: " + e.getMessage();
+            logger.error("Error precomputing generic embeddings: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * Get progress and memory footprint of the vocabulary embedding cache
+     */
+    public Map<String, Object> getVocabularyCacheStatus() {
+        VocabularyCache cache = vocabularyCache;
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (cache == null) {
+            status.put("state", "Not started");
+            return status;
+        }
+        EmbeddingMatrix matrix = cache.matrix;
+        status.put("state", cache.state);
+        status.put("totalWords", cache.vocabulary.size());
+        status.put("completedWords", cache.completedRows);
+        status.put("dimension", matrix != null ? matrix.getDimension() : 0);
+        status.put("memoryBytes", matrix != null ? matrix.getMemoryBytes() : 0L);
+        return status;
+    }
+
+    /**
+     * Heap held by the vocabulary embedding cache
+     */
+    public long getCacheMemoryBytes() {
+        VocabularyCache cache = vocabularyCache;
+        EmbeddingMatrix matrix = cache != null ? cache.matrix : null;
+        return matrix != null ? matrix.getMemoryBytes() : 0;
+    }
+
+    /**
+     * Native memory of the transformer's arrays once loaded. Requests use
+     * per-call predictor contexts that free their arrays, so this is the
+     * steady state.
+     */
+    public long getNativeMemoryBytes() {
+        return nativeBytes;
+    }
+
+    public int getOpenArrayCount() {
+        return nativeUsage.getArrays();
+    }
+
     private float cosineSimilarity(float[] v1, float[] v2) {
         if (v1.length != v2.length) throw new IllegalArgumentException("Vector length mismatch");
 
@@ -58,6 +250,7 @@ public class GenericEmbeddingService {
 
     @PreDestroy
     public void destroy() {
+        precomputeExecutor.shutdownNow();
         if (predictor != null) predictor.close();
         if (model != null) model.close();
     }
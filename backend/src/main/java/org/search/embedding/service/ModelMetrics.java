@@ -0,0 +1,104 @@
+package org.search.embedding.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Gauges over the served models: vocabulary size, memory footprint and
+ * how often concurrent identical queries were coalesced.
+ * Spring Boot binds every MeterBinder bean to the registry at startup.
+ *
+ * Native array figures are sampled by the models at safe points (after
+ * every training step and embedding batch, after loading) rather than at
+ * scrape time, because walking a manager while another thread frees
+ * arrays is unsafe. While a new custom model trains, its figures replace
+ * the serving model's under the same model=custom tag.
+ * A count that keeps growing across epochs points to a leak; set
+ * embedding.ndarray.debug-scopes=true to log where escaping arrays were
+ * allocated.
+ */
+@Component
+public class ModelMetrics implements MeterBinder {
+
+    @Autowired
+    private EmbeddingService embeddingService;
+
+    @Autowired
+    private GenericEmbeddingService genericEmbeddingService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("embedding.model.vocabulary.size", embeddingService, service -> service.getDictionary().size())
+                .description("Words in the custom model's vocabulary")
+                .register(registry);
+        Gauge.builder("embedding.model.native.memory", embeddingService, EmbeddingService::getNativeMemoryBytes)
+                .description("Native memory of the model's open arrays")
+                .tag("model", "custom")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("embedding.model.native.memory", genericEmbeddingService, GenericEmbeddingService::getNativeMemoryBytes)
+                .description("Native memory of the model's open arrays")
+                .tag("model", "generic")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("embedding.ndarray.open", embeddingService, EmbeddingService::getOpenArrayCount)
+                .description("Open native arrays held by the model")
+                .tag("model", "custom")
+                .register(registry);
+        Gauge.builder("embedding.ndarray.open", genericEmbeddingService, GenericEmbeddingService::getOpenArrayCount)
+                .description("Open native arrays held by the model")
+                .tag("model", "generic")
+                .register(registry);
+        Gauge.builder("embedding.model.heap.memory", embeddingService,
+                        service -> service.getDictionary().getMemoryBytes())
+                .description("Heap held by model-side lookup structures")
+                .tag("component", "vocabulary")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("embedding.model.heap.memory", genericEmbeddingService, GenericEmbeddingService::getCacheMemoryBytes)
+                .description("Heap held by model-side lookup structures")
+                .tag("component", "generic-cache")
+                .baseUnit("bytes")
+                .register(registry);
+        bindCoalescing(registry, "custom", embeddingService, EmbeddingService::getCoalescingStats);
+        bindCoalescing(registry, "generic", genericEmbeddingService, GenericEmbeddingService::getCoalescingStats);
+    }
+
+    /**
+     * Counters and an in-flight gauge per query type of a model's
+     * SingleFlight stats, read from the service on every scrape
+     */
+    private static <T> void bindCoalescing(MeterRegistry registry, String model, T service,
+                                           Function<T, Map<String, Object>> stats) {
+        for (String query : stats.apply(service).keySet()) {
+            FunctionCounter.builder("embedding.coalescing.calls", service,
+                            source -> stat(stats.apply(source), query, "calls"))
+                    .description("Queries that went through request coalescing")
+                    .tags("model", model, "query", query)
+                    .register(registry);
+            FunctionCounter.builder("embedding.coalescing.coalesced", service,
+                            source -> stat(stats.apply(source), query, "coalesced"))
+                    .description("Queries that waited for an identical one in flight instead of computing")
+                    .tags("model", model, "query", query)
+                    .register(registry);
+            Gauge.builder("embedding.coalescing.in.flight", service,
+                            source -> stat(stats.apply(source), query, "inFlight"))
+                    .description("Distinct queries currently being computed")
+                    .tags("model", model, "query", query)
+                    .register(registry);
+        }
+    }
+
+    private static double stat(Map<String, Object> stats, String query, String name) {
+        Object counts = stats.get(query);
+        Object value = counts instanceof Map<?, ?> map ? map.get(name) : null;
+        return value instanceof Number number ? number.doubleValue() : 0;
+    }
+}
@@ -0,0 +1,81 @@
+package org.search.embedding.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent calls for the same key into one computation. The
+ * first caller runs it on its own thread; callers arriving while it is in
+ * flight wait for the same result, or get the same exception. Nothing is
+ * cached: once the computation finishes, the next call computes afresh.
+ *
+ * Coalesced callers share the result object, so results must be treated
+ * as read-only.
+ */
+class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    V execute(K key, Callable<V> computation) throws Exception {
+        calls.increment();
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            V result = computation.call();
+            mine.complete(result);
+            return result;
+        } catch (Throwable t) {
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    long getCalls() {
+        return calls.sum();
+    }
+
+    long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    int getInFlight() {
+        return inFlight.size();
+    }
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", getCalls());
+        stats.put("coalesced", getCoalesced());
+        stats.put("inFlight", getInFlight());
+        return stats;
+    }
+}
@@ -0,0 +1,116 @@
+package org.search.embedding.service;
+
+import jakarta.annotation.PreDestroy;
+import org.search.embedding.model.SiameseEmbedding.TrainingProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes training progress to Server-Sent Events subscribers. Each event
+ * is a small delta (epoch, loss, status) instead of the full status
+ * document. Updates are coalesced: the trainer only swaps in the latest
+ * delta, and a sender thread flushes it at most once per interval, so a
+ * slow client never holds up training and the last update always arrives.
+ */
+@Component
+public class TrainingEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainingEventBroadcaster.class);
+
+    static final String EVENT_NAME = "progress";
+
+    @Value("${training.events.interval-ms:200}")
+    private long intervalMs = 200;
+
+    @Value("${training.events.timeout-ms:1800000}")
+    private long timeoutMs = 1_800_000;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Map<String, Object>> pending = new AtomicReference<>();
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(
+            runnable -> WorkerThreads.newThread(runnable, "training-events", virtualThreads));
+
+    /**
+     * Open a stream for one client, starting with the current progress
+     */
+    public SseEmitter subscribe(TrainingProgress current) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(toDelta(current)));
+            emitters.add(emitter);
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * Progress listener for the model being trained
+     */
+    public void onProgress(TrainingProgress progress) {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        if (pending.getAndSet(toDelta(progress)) == null) {
+            sender.schedule(this::flush, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void flush() {
+        Map<String, Object> delta = pending.getAndSet(null);
+        if (delta == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(EVENT_NAME).data(delta));
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; drop it
+                emitters.remove(emitter);
+                logger.debug("Dropping training event subscriber: {}", e.getMessage());
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return emitters.size();
+    }
+
+    static Map<String, Object> toDelta(TrainingProgress progress) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("epoch", progress.currentEpoch);
+        delta.put("totalEpochs", progress.totalEpochs);
+        delta.put("loss", progress.currentLoss);
+        delta.put("status", progress.status);
+        delta.put("isTraining", progress.isTraining);
+        return delta;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        for (SseEmitter emitter : emitters) {
+            emitter.complete();
+        }
+        emitters.clear();
+    }
+}
@@ -0,0 +1,104 @@
+package org.search.embedding.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * One request to retrain the model, tracked from submission to completion.
+ * State transitions are synchronized on the job; cancellation of a running
+ * job is cooperative and takes effect at the trainer's next check.
+ */
+public class TrainingJob {
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+    private final String trigger;
+    private final Instant createdAt = Instant.now();
+    private State state = State.QUEUED;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+    private volatile boolean cancelRequested = false;
+    private Future<?> future;
+
+    TrainingJob(String id, String trigger) {
+        this.id = id;
+        this.trigger = trigger;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Polled by the trainer between batches
+     */
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    synchronized void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Move to RUNNING, unless the job was cancelled while queued
+     */
+    synchronized boolean start() {
+        if (state != State.QUEUED) {
+            return false;
+        }
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        return true;
+    }
+
+    synchronized void finish(State finalState, String error) {
+        state = finalState;
+        this.error = error;
+        finishedAt = Instant.now();
+    }
+
+    /**
+     * Cancel a queued job right away, or ask a running one to stop
+     */
+    synchronized void cancel() {
+        if (state == State.QUEUED) {
+            cancelRequested = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+            finish(State.CANCELLED, null);
+        } else if (state == State.RUNNING) {
+            cancelRequested = true;
+        }
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", id);
+        map.put("state", state);
+        map.put("trigger", trigger);
+        map.put("createdAt", createdAt.toString());
+        map.put("startedAt", startedAt != null ? startedAt.toString() : null);
+        map.put("finishedAt", finishedAt != null ? finishedAt.toString() : null);
+        map.put("cancelRequested", cancelRequested);
+        if (error != null) {
+            map.put("error", error);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,152 @@
+package org.search.embedding.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs model training as jobs on a single worker thread with a bounded
+ * queue. Only one job trains at a time, and a request that arrives while a
+ * job is still queued joins that job instead of adding another, since both
+ * would train on the same documents. A full queue rejects the submission
+ * with a RejectedExecutionException.
+ */
+@Service
+public class TrainingJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainingJobService.class);
+
+    @Autowired
+    private EmbeddingService embeddingService;
+
+    @Value("${training.jobs.history:20}")
+    private int historySize = 20; // finished jobs kept for lookup
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1),
+            runnable -> WorkerThreads.newThread(runnable, "training-job", virtualThreads));
+
+    private final Map<String, TrainingJob> jobs = new LinkedHashMap<>();
+
+    /**
+     * Queue a training run, or return the job already waiting in the queue
+     */
+    public synchronized TrainingJob submit(String trigger) {
+        for (TrainingJob job : jobs.values()) {
+            if (job.getState() == TrainingJob.State.QUEUED && !job.isCancelRequested()) {
+                logger.info("Training request from {} joined queued job {}", trigger, job.getId());
+                return job;
+            }
+        }
+
+        TrainingJob job = new TrainingJob(UUID.randomUUID().toString(), trigger);
+        job.setFuture(executor.submit(() -> run(job)));
+        jobs.put(job.getId(), job);
+        pruneHistory();
+        logger.info("Queued training job {} ({})", job.getId(), trigger);
+        return job;
+    }
+
+    private void run(TrainingJob job) {
+        if (!job.start()) {
+            return;
+        }
+        try {
+            embeddingService.trainModel(job::isCancelRequested);
+            job.finish(TrainingJob.State.SUCCEEDED, null);
+            logger.info("Training job {} completed", job.getId());
+        } catch (CancellationException e) {
+            job.finish(TrainingJob.State.CANCELLED, null);
+            logger.info("Training job {} cancelled", job.getId());
+        } catch (Exception e) {
+            job.finish(TrainingJob.State.FAILED, e.getMessage());
+            logger.error("Training job {} failed", job.getId(), e);
+        }
+    }
+
+    /**
+     * Look up a job, or null if it is unknown or has aged out of the history
+     */
+    public synchronized TrainingJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Cancel a job. Queued jobs are cancelled immediately; running jobs stop
+     * at the trainer's next cancellation check.
+     *
+     * @return the job, or null if it is unknown
+     */
+    public synchronized TrainingJob cancel(String jobId) {
+        TrainingJob job = jobs.get(jobId);
+        if (job != null) {
+            job.cancel();
+            // Free the queue slot held by a cancelled job's task
+            executor.purge();
+        }
+        return job;
+    }
+
+    /**
+     * All known jobs, oldest first
+     */
+    public synchronized List<TrainingJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    /**
+     * Number of jobs waiting to run
+     */
+    public synchronized int getQueuedCount() {
+        int queued = 0;
+        for (TrainingJob job : jobs.values()) {
+            if (job.getState() == TrainingJob.State.QUEUED) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    private void pruneHistory() {
+        int finished = 0;
+        for (TrainingJob job : jobs.values()) {
+            if (job.getState().isFinished()) {
+                finished++;
+            }
+        }
+        Iterator<TrainingJob> iterator = jobs.values().iterator();
+        while (finished > historySize && iterator.hasNext()) {
+            if (iterator.next().getState().isFinished()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            for (TrainingJob job : jobs.values()) {
+                job.cancel();
+            }
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,35 @@
+package org.search.embedding.service;
+
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the service's own background threads: daemon platform threads by
+ * default, or virtual threads when {@code spring.threads.virtual.enabled}
+ * is set and the JVM supports them (Java 21+). On older JVMs the setting
+ * is ignored, as Spring Boot does for its own executors.
+ */
+final class WorkerThreads {
+
+    static final boolean VIRTUAL_SUPPORTED = Runtime.version().feature() >= 21;
+
+    private static final Map<String, ThreadFactory> virtualFactories = new ConcurrentHashMap<>();
+
+    private WorkerThreads() {
+    }
+
+    static Thread newThread(Runnable runnable, String name, boolean virtual) {
+        if (virtual && VIRTUAL_SUPPORTED) {
+            // Spring ships a Java 21 variant calling Thread.ofVirtual(), so this still compiles on 17
+            return virtualFactories
+                    .computeIfAbsent(name, prefix -> new VirtualThreadTaskExecutor(prefix + "-").getVirtualThreadFactory())
+                    .newThread(runnable);
+        }
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
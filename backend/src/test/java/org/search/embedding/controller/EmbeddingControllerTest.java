@@ -1,19 +1,35 @@
 package org.search.embedding.controller;
 
 import org.search.embedding.dto.SimilarityRequest;
+import org.search.embedding.model.EmbeddingExporter;
+import org.search.embedding.model.EmbeddingMatrix;
+import org.search.embedding.model.FrontCodedDictionary;
 import org.search.embedding.model.SiameseEmbedding;
+import org.search.embedding.service.AdmissionControl;
+import org.search.embedding.service.AdmissionRejectedException;
+import org.search.embedding.service.DocumentWatcher;
 import org.search.embedding.service.EmbeddingService;
 import org.search.embedding.service.GenericEmbeddingService;
+import org.search.embedding.service.TrainingEventBroadcaster;
+import org.search.embedding.service.TrainingJob;
+import org.search.embedding.service.TrainingJobService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -32,35 +48,94 @@ class EmbeddingControllerTest {
     @MockBean
     private GenericEmbeddingService genericEmbeddingService;
 
+    @MockBean
+    private DocumentWatcher documentWatcher;
+
+    @MockBean
+    private TrainingJobService trainingJobService;
+
+    @MockBean
+    private TrainingEventBroadcaster trainingEventBroadcaster;
+
+    @MockBean
+    private AdmissionControl admissionControl;
+
     @Test
     void testTrainModel_Success() throws Exception {
         // Setup
-        doNothing().when(embeddingService).trainModel();
+        TrainingJob job = mock(TrainingJob.class);
+        when(job.getId()).thenReturn("job-1");
+        when(job.toMap()).thenReturn(Map.of("jobId", "job-1", "state", "QUEUED"));
+        when(trainingJobService.submit("api")).thenReturn(job);
 
         // Execute & Verify
         mockMvc.perform(post("/api/train"))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$.status").value("Training started"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value("job-1"))
+                .andExpect(jsonPath("$.state").value("QUEUED"))
                 .andExpect(jsonPath("$.message").exists());
     }
 
     @Test
-    void testTrainModel_Exception() throws Exception {
+    void testTrainModel_QueueFull() throws Exception {
         // Setup
-        doThrow(new RuntimeException("Training failed")).when(embeddingService).trainModel();
+        when(trainingJobService.submit("api")).thenThrow(new RejectedExecutionException("full"));
 
-        // Execute & Verify - Controller starts training in thread, exceptions are logged but controller returns success
+        // Execute & Verify
         mockMvc.perform(post("/api/train"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(jsonPath("$.error").value("Training queue is full"));
+    }
+
+    @Test
+    void testGetTrainingJob() throws Exception {
+        // Setup
+        TrainingJob job = mock(TrainingJob.class);
+        when(job.toMap()).thenReturn(Map.of("jobId", "job-1", "state", "RUNNING"));
+        when(trainingJobService.getJob("job-1")).thenReturn(job);
+
+        // Execute & Verify
+        mockMvc.perform(get("/api/train/job-1"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.status").value("Training started"))
-                .andExpect(jsonPath("$.message").exists());
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+        mockMvc.perform(get("/api/train/missing"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").exists());
     }
 
     @Test
-    void testGetStatus_Success() throws Exception {
+    void testCancelTrainingJob() throws Exception {
+        // Setup
+        TrainingJob job = mock(TrainingJob.class);
+        when(job.toMap()).thenReturn(Map.of("jobId", "job-1", "state", "CANCELLED"));
+        when(trainingJobService.cancel("job-1")).thenReturn(job);
+
+        // Execute & Verify
+        mockMvc.perform(delete("/api/train/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("CANCELLED"));
+        mockMvc.perform(delete("/api/train/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testStreamTrainingEvents() throws Exception {
         // Setup
         SiameseEmbedding.TrainingProgress progress = new SiameseEmbedding.TrainingProgress();
-        progress.status = "Training completed";
+        when(embeddingService.getProgress()).thenReturn(progress);
+        when(trainingEventBroadcaster.subscribe(progress)).thenReturn(new SseEmitter());
+
+        // Execute & Verify
+        mockMvc.perform(get("/api/train/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+        verify(trainingEventBroadcaster).subscribe(progress);
+    }
+
+    @Test
+    void testGetStatus_Success() throws Exception {
+        // Setup
+        SiameseEmbedding.TrainingProgress progress = new SiameseEmbedding.TrainingProgress()
+            .withStatus(false, "Training completed");
 
         Map<String, Object> config = Map.of("embedDim", 16);
 
@@ -68,6 +143,8 @@ class EmbeddingControllerTest {
         when(embeddingService.getModelConfig()).thenReturn(config);
         when(embeddingService.isModelTrained()).thenReturn(true);
         when(embeddingService.getTrainingStats()).thenReturn(Map.of("totalPairs", 10));
+        when(genericEmbeddingService.getVocabularyCacheStatus()).thenReturn(Map.of("state", "Completed"));
+        when(documentWatcher.getStatus()).thenReturn(Map.of("pendingFiles", 2));
 
         // Execute & Verify
         mockMvc.perform(get("/api/status"))
@@ -75,7 +152,9 @@ class EmbeddingControllerTest {
                 .andExpect(jsonPath("$.progress.status").value("Training completed"))
                 .andExpect(jsonPath("$.config.embedDim").value(16))
                 .andExpect(jsonPath("$.isTrained").value(true))
-                .andExpect(jsonPath("$.stats.totalPairs").value(10));
+                .andExpect(jsonPath("$.stats.totalPairs").value(10))
+                .andExpect(jsonPath("$.genericCache.state").value("Completed"))
+                .andExpect(jsonPath("$.watcher.pendingFiles").value(2));
     }
 
     @Test
@@ -92,8 +171,8 @@ class EmbeddingControllerTest {
     @Test
     void testGetVocabulary_Success() throws Exception {
         // Setup
-        List<String> vocabulary = List.of("word1", "word2", "word3");
-        when(embeddingService.getVocabulary()).thenReturn(vocabulary);
+        FrontCodedDictionary dictionary = FrontCodedDictionary.of(List.of("word1", "word2", "word3"));
+        when(embeddingService.getDictionary()).thenReturn(dictionary);
         when(embeddingService.isModelTrained()).thenReturn(true);
 
         // Execute & Verify
@@ -105,6 +184,30 @@ class EmbeddingControllerTest {
                 .andExpect(jsonPath("$.isTrained").value(true));
     }
 
+    @Test
+    void testGetVocabulary_PrefixPage() throws Exception {
+        // Setup
+        FrontCodedDictionary dictionary = FrontCodedDictionary.of(
+                List.of("s3", "sagemaker", "secret", "security", "server", "sns", "aws"));
+        when(embeddingService.getDictionary()).thenReturn(dictionary);
+
+        // Execute & Verify
+        mockMvc.perform(get("/api/vocabulary").param("prefix", "SE").param("offset", "1").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.vocabulary.length()").value(2))
+                .andExpect(jsonPath("$.vocabulary[0]").value("security"))
+                .andExpect(jsonPath("$.vocabulary[1]").value("server"))
+                .andExpect(jsonPath("$.matches").value(3))
+                .andExpect(jsonPath("$.size").value(7));
+    }
+
+    @Test
+    void testGetVocabulary_InvalidPage() throws Exception {
+        mockMvc.perform(get("/api/vocabulary").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
     @Test
     void testCalculateCustomSimilarity_Success() throws Exception {
         // Setup
@@ -181,6 +284,57 @@ class EmbeddingControllerTest {
                 .andExpect(jsonPath("$.error").value("Failed to calculate generic similarity"));
     }
 
+    @Test
+    void testCalculateGenericSimilarity_QueueFullIsShedWith429() throws Exception {
+        // Setup
+        when(admissionControl.admit(AdmissionControl.GENERIC))
+            .thenThrow(new AdmissionRejectedException("similarity/generic is at capacity, try again later", true, 3));
+
+        // Execute & Verify
+        mockMvc.perform(post("/api/similarity/generic")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"word1\":\"word1\",\"word2\":\"word2\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.error").value("similarity/generic is at capacity, try again later"));
+        verify(genericEmbeddingService, never()).calculateGenericSimilarity(anyString(), anyString());
+    }
+
+    @Test
+    void testCalculateCustomSimilarity_WaitTimeoutIsShedWith503() throws Exception {
+        // Setup
+        when(admissionControl.admit(AdmissionControl.CUSTOM))
+            .thenThrow(new AdmissionRejectedException("similarity/custom is overloaded, try again later", false, 1));
+
+        // Execute & Verify
+        mockMvc.perform(post("/api/similarity/custom")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"word1\":\"word1\",\"word2\":\"word2\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+        verify(embeddingService, never()).calculateCustomSimilarity(anyString(), anyString());
+    }
+
+    @Test
+    void testCompareSimilarities_InterruptedWaitIsShedWith503() throws Exception {
+        // Setup
+        when(admissionControl.admit(AdmissionControl.COMPARE)).thenThrow(new InterruptedException());
+
+        // Execute & Verify
+        try {
+            mockMvc.perform(post("/api/similarity/compare")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"word1\":\"word1\",\"word2\":\"word2\"}"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            // Clear the flag so it doesn't leak into other tests on this thread
+            Thread.interrupted();
+        }
+        verify(embeddingService, never()).calculateCustomSimilarity(anyString(), anyString());
+    }
+
     @Test
     void testCompareSimilarities_BothSuccess() throws Exception {
         // Setup
@@ -230,6 +384,51 @@ class EmbeddingControllerTest {
                 .andExpect(jsonPath("$.dimension").value(3));
     }
 
+    @Test
+    void testGetEmbedding_Binary() throws Exception {
+        // Setup
+        when(embeddingService.getEmbedding("word")).thenReturn(new float[]{0.5f, -1.0f, 2.0f});
+
+        // Execute & Verify
+        byte[] body = mockMvc.perform(get("/api/embedding/word").accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(header().longValue("Content-Length", 20))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals('E', buffer.get(0));
+        assertEquals(3, buffer.getInt(4));
+        assertEquals(0.5f, buffer.getFloat(8));
+        assertEquals(-1.0f, buffer.getFloat(12));
+        assertEquals(2.0f, buffer.getFloat(16));
+    }
+
+    @Test
+    void testGetEmbedding_Protobuf() throws Exception {
+        // Setup
+        when(embeddingService.getEmbedding("s3")).thenReturn(new float[]{1.0f});
+
+        // Execute & Verify
+        mockMvc.perform(get("/api/embedding/s3").accept("application/x-protobuf"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-protobuf"))
+                .andExpect(content().bytes(new byte[]{0x0A, 2, 's', '3', 0x12, 4, 0, 0, (byte) 0x80, 0x3F}));
+    }
+
+    @Test
+    void testGetEmbedding_BinaryErrorIsJson() throws Exception {
+        // Setup
+        when(embeddingService.getEmbedding(anyString()))
+            .thenThrow(new IllegalArgumentException("Word not in vocabulary: nope"));
+
+        // Execute & Verify
+        mockMvc.perform(get("/api/embedding/nope").accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.error").value("Word not in vocabulary: nope"));
+    }
+
     @Test
     void testGetEmbedding_ModelNotTrained() throws Exception {
         // Setup
@@ -242,6 +441,40 @@ class EmbeddingControllerTest {
                 .andExpect(jsonPath("$.error").value("Model not trained yet"));
     }
 
+    @Test
+    void testExportEmbeddings_StreamsNdjson() throws Exception {
+        // Setup
+        EmbeddingMatrix matrix = new EmbeddingMatrix(1, 2);
+        matrix.setRow(0, new float[]{1.0f, 0.5f});
+        when(embeddingService.getExporter()).thenReturn(new EmbeddingExporter(List.of("aws"), matrix));
+
+        // Execute & Verify
+        MvcResult result = mockMvc.perform(get("/api/embeddings/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string("X-Embedding-Rows", "1"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"embeddings.ndjson\""))
+                .andExpect(content().string("{\"word\":\"aws\",\"embedding\":[1.0,0.5]}\n"));
+    }
+
+    @Test
+    void testExportEmbeddings_Errors() throws Exception {
+        // Setup
+        when(embeddingService.getExporter()).thenThrow(new IllegalStateException("Model not trained yet"));
+
+        // Execute & Verify
+        MvcResult badFormat = mockMvc.perform(get("/api/embeddings/export").param("format", "csv")).andReturn();
+        mockMvc.perform(asyncDispatch(badFormat))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown export format: csv"));
+        MvcResult untrained = mockMvc.perform(get("/api/embeddings/export").param("format", "f32")).andReturn();
+        mockMvc.perform(asyncDispatch(untrained))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     void testHealth() throws Exception {
         // Setup
@@ -0,0 +1,168 @@
+package org.search.embedding.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.search.embedding.model.SiameseEmbedding.TrainingPair;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoOccurrenceAccumulatorTest {
+
+    @Test
+    void testPairKey_IsOrderIndependent() {
+        long key = PairKey.pack(9, 3);
+        assertEquals(key, PairKey.pack(3, 9));
+        assertEquals(3, PairKey.first(key));
+        assertEquals(9, PairKey.second(key));
+    }
+
+    @Test
+    void testAccept_SumsWeightsPerUnorderedPair() {
+        CoOccurrenceAccumulator accumulator = new CoOccurrenceAccumulator();
+        int cloud = accumulator.getWords().intern("cloud");
+        int storage = accumulator.getWords().intern("storage");
+
+        accumulator.accept(cloud, storage, 0.5f);
+        accumulator.accept(storage, cloud, 1.0f);
+        accumulator.accept(cloud, storage, 0.25f);
+
+        assertEquals(1, accumulator.size());
+        assertEquals(1.75f, accumulator.getWeight(storage, cloud));
+    }
+
+    @Test
+    void testMergeFrom_TranslatesWordIds() {
+        CoOccurrenceAccumulator left = new CoOccurrenceAccumulator();
+        left.accept(left.getWords().intern("aws"), left.getWords().intern("s3"), 0.5f);
+
+        CoOccurrenceAccumulator right = new CoOccurrenceAccumulator();
+        int s3 = right.getWords().intern("s3");
+        int aws = right.getWords().intern("aws");
+        int ec2 = right.getWords().intern("ec2");
+        right.accept(aws, s3, 1.0f);
+        right.accept(aws, ec2, 0.2f);
+
+        left.mergeFrom(right);
+
+        WordInterner words = left.getWords();
+        assertEquals(2, left.size());
+        assertEquals(3, words.size());
+        assertEquals(1.5f, left.getWeight(words.intern("aws"), words.intern("s3")));
+        assertEquals(0.2f, left.getWeight(words.intern("ec2"), words.intern("aws")));
+    }
+
+    @Test
+    void testToTrainingPairs_LabelsByNpmi() {
+        CoOccurrenceAccumulator accumulator = new CoOccurrenceAccumulator();
+        WordInterner words = accumulator.getWords();
+        int aws = words.intern("aws");
+        int s3 = words.intern("s3");
+        int cloud = words.intern("cloud");
+        int bucket = words.intern("bucket");
+
+        // aws and s3 always appear together; cloud co-occurs with everything
+        for (int i = 0; i < 10; i++) {
+            accumulator.accept(aws, s3, 1.0f);
+        }
+        accumulator.accept(aws, cloud, 1.0f);
+        accumulator.accept(s3, cloud, 1.0f);
+        accumulator.accept(bucket, cloud, 1.0f);
+
+        Map<String, Float> labels = new HashMap<>();
+        List<TrainingPair> pairs = accumulator.toTrainingPairs();
+        for (TrainingPair pair : pairs) {
+            assertTrue(pair.similarity >= 0f && pair.similarity <= 1f);
+            String key = pair.word1.compareTo(pair.word2) < 0 ? pair.word1 + "|" + pair.word2 : pair.word2 + "|" + pair.word1;
+            labels.put(key, pair.similarity);
+        }
+
+        assertEquals(4, pairs.size());
+        assertTrue(labels.get("aws|s3") > labels.get("aws|cloud"));
+        assertTrue(labels.get("bucket|cloud") > labels.get("aws|cloud"));
+    }
+
+    @Test
+    void testCounts_TrackedThroughWindowMergeAndSerialization() throws IOException {
+        CoOccurrenceAccumulator left = new CoOccurrenceAccumulator();
+        new TokenScanner().scan("Cloud storage. Cloud buckets.", new PairWindow(left.getWords(), 5, left));
+        CoOccurrenceAccumulator right = new CoOccurrenceAccumulator();
+        new TokenScanner().scan("Buckets and cloud", new PairWindow(right.getWords(), 5, right));
+
+        left.mergeFrom(right);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        left.writeTo(new DataOutputStream(bytes));
+        CoOccurrenceAccumulator restored = CoOccurrenceAccumulator.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        WordInterner words = restored.getWords();
+        assertEquals(6, restored.getTokenCount());
+        assertEquals(3, restored.getCount(words.intern("cloud")));
+        assertEquals(2, restored.getCount(words.intern("buckets")));
+        assertEquals(1, restored.getCount(words.intern("storage")));
+    }
+
+    @Test
+    void testSerialization_WordsLongerThanModifiedUtf8Limit() throws IOException {
+        String blob = "x".repeat(70_000) + "\u00e9";
+        CoOccurrenceAccumulator accumulator = new CoOccurrenceAccumulator();
+        accumulator.accept(accumulator.getWords().intern(blob), accumulator.getWords().intern("cloud"), 1.0f);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        accumulator.writeTo(new DataOutputStream(bytes));
+        CoOccurrenceAccumulator restored = CoOccurrenceAccumulator.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(blob, restored.getWords().word(0));
+        assertEquals(1.0f, restored.getWeight(0, 1));
+    }
+
+    @Test
+    void testToTrainingPairs_FilterKeepsLabelsOfFullMatrix() {
+        CoOccurrenceAccumulator accumulator = new CoOccurrenceAccumulator();
+        new TokenScanner().scan("Cloud storage buckets. Cloud storage replicas. Cloud archive.",
+                new PairWindow(accumulator.getWords(), 5, accumulator));
+
+        Map<String, Float> all = new HashMap<>();
+        for (TrainingPair pair : accumulator.toTrainingPairs()) {
+            all.put(pair.word1 + "|" + pair.word2, pair.similarity);
+        }
+        List<TrainingPair> filtered = accumulator.toTrainingPairs(new PairFilter(2, 0));
+
+        assertEquals(1, filtered.size());
+        TrainingPair pair = filtered.get(0);
+        assertEquals(all.get(pair.word1 + "|" + pair.word2), pair.similarity);
+    }
+
+    @Test
+    void testClear_ResetsTableAndCountsWordMemory() {
+        CoOccurrenceAccumulator accumulator = new CoOccurrenceAccumulator();
+        long empty = accumulator.getMemoryBytes();
+        PairWindow window = new PairWindow(accumulator.getWords(), 5, accumulator);
+        new TokenScanner().scan("Cloud " + "s".repeat(5000) + " buckets.", window);
+        assertTrue(accumulator.getMemoryBytes() >= empty + 5000, "Word strings count towards the budget");
+
+        accumulator.clear();
+        assertEquals(0, accumulator.size());
+        assertEquals(0, accumulator.getTokenCount());
+        assertEquals(0, accumulator.getWords().size());
+
+        new TokenScanner().scan("Cloud storage.", window);
+        assertEquals(1, accumulator.size());
+        assertEquals(1.0f, accumulator.getWeight(0, 1));
+    }
+
+    @Test
+    void testNpmi_Bounds() {
+        assertEquals(1.0f, CoOccurrenceAccumulator.npmi(1, 1, 1, 1));
+        assertEquals(1.0f, CoOccurrenceAccumulator.npmi(1, 1, 1, 2), 1e-6f);
+        assertEquals(0.0f, CoOccurrenceAccumulator.npmi(1, 10, 10, 20));
+    }
+}
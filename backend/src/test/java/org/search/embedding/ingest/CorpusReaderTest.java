@@ -0,0 +1,122 @@
+package org.search.embedding.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorpusReaderTest {
+
+    private final CorpusReader reader = new CorpusReader("text");
+
+    @TempDir
+    Path tempDir;
+
+    private List<List<String>> sentences(Path file) throws IOException {
+        List<List<String>> sentences = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        reader.scan(file, new TokenScanner(), new TokenScanner.TokenHandler() {
+            @Override
+            public void onToken(char[] chars, int start, int length) {
+                current.add(new String(chars, start, length));
+            }
+
+            @Override
+            public void onSentenceEnd() {
+                if (!current.isEmpty()) {
+                    sentences.add(new ArrayList<>(current));
+                    current.clear();
+                }
+            }
+        });
+        return sentences;
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void testScan_GzipMatchesPlainText() throws IOException {
+        String text = "Cloud storage buckets hold objects. Buckets replicate across regions!";
+        Path plain = Files.writeString(tempDir.resolve("doc.txt"), text);
+        Path compressed = Files.write(tempDir.resolve("doc.txt.gz"), gzip(text));
+
+        assertEquals(sentences(plain), sentences(compressed));
+    }
+
+    @Test
+    void testScan_ZipEntriesAreSeparateDocuments() throws IOException {
+        Path archive = tempDir.resolve("corpus.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("nested/"));
+            zip.putNextEntry(new ZipEntry("nested/a.txt"));
+            zip.write("cloud storage buckets".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("b.jsonl.gz"));
+            zip.write(gzip("{\"text\": \"database indexes\"}\n"));
+            zip.putNextEntry(new ZipEntry("image.png"));
+            zip.write(new byte[]{1, 2, 3});
+        }
+
+        assertEquals(List.of(
+                List.of("cloud", "storage", "buckets"),
+                List.of("database", "indexes")
+        ), sentences(archive));
+    }
+
+    @Test
+    void testScan_JsonLinesUsesTextField() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("records.jsonl"),
+                "{\"id\": 1, \"meta\": {\"text\": \"ignored nested\"}, \"text\": \"Serverless functions scale\"}\n"
+                + "\n"
+                + "{\"id\": 2, \"title\": \"no text field\"}\n"
+                + "{\"text\": \"Container images\", \"tags\": [\"x\"]}\n");
+
+        assertEquals(List.of(
+                List.of("serverless", "functions", "scale"),
+                List.of("container", "images")
+        ), sentences(file));
+    }
+
+    @Test
+    void testScan_MalformedJsonLine() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("bad.jsonl"), "{\"text\": \"fine\"}\n{\"text\": \n");
+
+        IOException e = assertThrows(IOException.class, () -> sentences(file));
+        assertTrue(e.getMessage().contains("line 2"));
+    }
+
+    @Test
+    void testListDocuments_RecursiveAndFiltered() throws IOException {
+        Files.createDirectories(tempDir.resolve("a/b"));
+        Files.writeString(tempDir.resolve("top.txt"), "x");
+        Files.writeString(tempDir.resolve("a/records.jsonl"), "x");
+        Files.write(tempDir.resolve("a/b/deep.txt.gz"), gzip("x"));
+        Files.writeString(tempDir.resolve("a/b/notes.pdf"), "x");
+        Files.writeString(tempDir.resolve("a/archive.zip.gz"), "x");
+
+        List<Path> documents = CorpusReader.listDocuments(tempDir);
+
+        assertEquals(List.of(
+                tempDir.resolve("a/b/deep.txt.gz"),
+                tempDir.resolve("a/records.jsonl"),
+                tempDir.resolve("top.txt")
+        ), documents);
+    }
+}
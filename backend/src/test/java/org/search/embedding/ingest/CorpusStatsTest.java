@@ -0,0 +1,79 @@
+package org.search.embedding.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.search.embedding.model.SiameseEmbedding.TrainingPair;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorpusStatsTest {
+
+    @Test
+    void testToMap_SummarizesPairs() {
+        CorpusStats stats = CorpusStats.of(List.of(
+                new TrainingPair("aws", "s3", 1.0f),
+                new TrainingPair("s3", "bucket", 0.5f),
+                new TrainingPair("aws", "bucket", 0.3f),
+                new TrainingPair("aws", "ec2", 0.2f)
+        ));
+
+        Map<String, Object> map = stats.toMap();
+
+        assertEquals(4, map.get("totalPairs"));
+        assertEquals(4, map.get("uniqueWords"));
+        assertEquals(0.5f, (Float) map.get("avgSimilarity"), 1e-6f);
+        assertEquals(1.0f, map.get("maxSimilarity"));
+        assertEquals(0.2f, map.get("minSimilarity"));
+        assertEquals(List.of("aws (3)", "bucket (2)", "s3 (2)", "ec2 (1)"), map.get("topWords"));
+    }
+
+    @Test
+    void testTopWords_MatchesFullSort() {
+        Random random = new Random(9);
+        List<TrainingPair> pairs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // Skewed draw so frequencies differ widely
+            int a = (int) Math.pow(random.nextInt(40_000), 0.5);
+            int b = (int) Math.pow(random.nextInt(40_000), 0.5);
+            pairs.add(new TrainingPair("w" + a, "w" + b, random.nextFloat()));
+        }
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (TrainingPair pair : pairs) {
+            counts.merge(pair.word1, 1, Integer::sum);
+            counts.merge(pair.word2, 1, Integer::sum);
+        }
+        List<String> expected = counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                .limit(25)
+                .map(e -> e.getKey() + " (" + e.getValue() + ")")
+                .collect(Collectors.toList());
+
+        assertEquals(expected, CorpusStats.of(pairs).topWords(25));
+    }
+
+    @Test
+    void testTopWords_FewerWordsThanK() {
+        CorpusStats stats = CorpusStats.of(List.of(new TrainingPair("cloud", "storage", 0.5f)));
+
+        assertEquals(List.of("cloud (1)", "storage (1)"), stats.topWords(10));
+        assertTrue(new CorpusStats().topWords(10).isEmpty());
+    }
+
+    @Test
+    void testToMap_EmptyAndImmutable() {
+        Map<String, Object> map = new CorpusStats().toMap();
+
+        assertEquals(0, map.get("totalPairs"));
+        assertEquals(0f, map.get("avgSimilarity"));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("totalPairs", 1));
+    }
+}
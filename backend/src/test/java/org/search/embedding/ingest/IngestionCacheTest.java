@@ -0,0 +1,140 @@
+package org.search.embedding.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestionCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private CoOccurrenceAccumulator load(Path file) throws IOException {
+        loads.incrementAndGet();
+        CoOccurrenceAccumulator accumulator = new CoOccurrenceAccumulator();
+        String[] words = Files.readString(file).trim().split("\\s+");
+        for (int i = 1; i < words.length; i++) {
+            accumulator.accept(accumulator.getWords().intern(words[i - 1]), accumulator.getWords().intern(words[i]), 1.0f);
+        }
+        return accumulator;
+    }
+
+    @Test
+    void testGetOrLoad_HitWhenUnchanged() throws IOException {
+        Path doc = tempDir.resolve("doc.txt");
+        Files.writeString(doc, "cloud storage bucket");
+        IngestionCache cache = new IngestionCache(tempDir.resolve("cache"), 1);
+
+        CoOccurrenceAccumulator first = cache.getOrLoad(doc, this::load);
+        CoOccurrenceAccumulator second = new IngestionCache(tempDir.resolve("cache"), 1).getOrLoad(doc, this::load);
+
+        assertEquals(1, loads.get());
+        assertEquals(first.size(), second.size());
+        WordInterner words = second.getWords();
+        assertEquals(1.0f, second.getWeight(words.intern("cloud"), words.intern("storage")));
+    }
+
+    @Test
+    void testGetOrLoad_TouchedButIdenticalIsHit() throws IOException {
+        Path doc = tempDir.resolve("doc.txt");
+        Files.writeString(doc, "cloud storage bucket");
+        IngestionCache cache = new IngestionCache(tempDir.resolve("cache"), 1);
+        cache.getOrLoad(doc, this::load);
+
+        Files.setLastModifiedTime(doc, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        cache.getOrLoad(doc, this::load);
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testGetOrLoad_MissWhenContentChanges() throws IOException {
+        Path doc = tempDir.resolve("doc.txt");
+        Files.writeString(doc, "cloud storage bucket");
+        IngestionCache cache = new IngestionCache(tempDir.resolve("cache"), 1);
+        cache.getOrLoad(doc, this::load);
+
+        Files.writeString(doc, "database index query plan");
+        Files.setLastModifiedTime(doc, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        CoOccurrenceAccumulator updated = cache.getOrLoad(doc, this::load);
+
+        assertEquals(2, loads.get());
+        assertEquals(3, updated.size());
+    }
+
+    @Test
+    void testGetOrLoad_CorruptBodyIsOnlyAMiss() throws IOException {
+        Path doc = tempDir.resolve("doc.txt");
+        Files.writeString(doc, "cloud storage bucket");
+        new IngestionCache(tempDir.resolve("cache"), 1).getOrLoad(doc, this::load);
+
+        Path entry;
+        try (var entries = Files.list(tempDir.resolve("cache"))) {
+            entry = entries.findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(entry);
+        bytes[bytes.length - 12] ^= 0x01; // a pair weight, which would otherwise decode silently
+        Files.write(entry, bytes);
+
+        IngestionCache cache = new IngestionCache(tempDir.resolve("cache"), 1);
+        CoOccurrenceAccumulator reloaded = cache.getOrLoad(doc, this::load);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        WordInterner words = reloaded.getWords();
+        assertEquals(1.0f, reloaded.getWeight(words.intern("cloud"), words.intern("storage")));
+    }
+
+    @Test
+    void testGetOrLoad_NullFromLoaderIsNotCached() throws IOException {
+        Path doc = tempDir.resolve("doc.txt");
+        Files.writeString(doc, "cloud storage bucket");
+        IngestionCache cache = new IngestionCache(tempDir.resolve("cache"), 1);
+        cache.getOrLoad(doc, this::load);
+
+        Files.writeString(doc, "cloud storage bucket replicas");
+        assertNull(cache.getOrLoad(doc, file -> null));
+        cache.getOrLoad(doc, this::load);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void testGetOrLoad_MissWhenParamsChange() throws IOException {
+        Path doc = tempDir.resolve("doc.txt");
+        Files.writeString(doc, "cloud storage bucket");
+        new IngestionCache(tempDir.resolve("cache"), 1).getOrLoad(doc, this::load);
+        new IngestionCache(tempDir.resolve("cache"), 2).getOrLoad(doc, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testPrune_RemovesEntriesForDeletedFiles() throws IOException {
+        Path kept = tempDir.resolve("kept.txt");
+        Path deleted = tempDir.resolve("deleted.txt");
+        Files.writeString(kept, "cloud storage");
+        Files.writeString(deleted, "database index");
+        IngestionCache cache = new IngestionCache(tempDir.resolve("cache"), 1);
+        cache.getOrLoad(kept, this::load);
+        cache.getOrLoad(deleted, this::load);
+
+        Files.delete(deleted);
+
+        assertEquals(1, cache.prune());
+        cache.getOrLoad(kept, this::load);
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,50 @@
+package org.search.embedding.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongFloatHashMapTest {
+
+    @Test
+    void testAddTo_SumsValues() {
+        LongFloatHashMap map = new LongFloatHashMap();
+        map.addTo(7L, 0.5f);
+        map.addTo(7L, 0.25f);
+        map.addTo(0L, 0.125f);
+        map.addTo(0L, 1.0f);
+
+        assertEquals(0.75f, map.get(7L, -1f));
+        assertEquals(1.125f, map.get(0L, -1f));
+        assertEquals(-1f, map.get(3L, -1f));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void testAddTo_MatchesHashMapUnderGrowth() {
+        LongFloatHashMap map = new LongFloatHashMap(16);
+        Map<Long, Float> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 50_000; i++) {
+            long key = PairKey.pack(random.nextInt(500), random.nextInt(500));
+            float value = random.nextInt(4) * 0.25f;
+            map.addTo(key, value);
+            expected.merge(key, value, Float::sum);
+        }
+
+        assertEquals(expected.size(), map.size());
+        Map<Long, Float> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testNegativeKeyRejected() {
+        LongFloatHashMap map = new LongFloatHashMap();
+        assertThrows(IllegalArgumentException.class, () -> map.addTo(-5L, 1f));
+    }
+}
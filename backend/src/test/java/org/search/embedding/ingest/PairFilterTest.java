@@ -0,0 +1,78 @@
+package org.search.embedding.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PairFilterTest {
+
+    @Test
+    void testKeep_DropsWordsBelowMinCount() {
+        PairFilter filter = new PairFilter(3, 0);
+        filter.setTotalTokens(100);
+
+        assertTrue(filter.keep("cloud", 5, "storage", 3));
+        assertFalse(filter.keep("cloud", 5, "typo", 2));
+        assertFalse(filter.keep("typo", 1, "cloud", 5));
+
+        assertEquals(1, filter.getKept());
+        assertEquals(2, filter.getDroppedRare());
+        assertEquals(0, filter.getDroppedSampled());
+    }
+
+    @Test
+    void testKeepProbability_FollowsWord2vecFormula() {
+        PairFilter filter = new PairFilter(1, 1e-3);
+        filter.setTotalTokens(1_000_000);
+
+        // f = 0.01, t / f = 0.1
+        assertEquals(Math.sqrt(0.1) + 0.1, filter.keepProbability(10_000), 1e-12);
+        // Words at or below the threshold frequency are always kept
+        assertEquals(1.0, filter.keepProbability(1_000));
+        assertEquals(1.0, filter.keepProbability(10));
+    }
+
+    @Test
+    void testUniform_IsSymmetricAndInRange() {
+        assertEquals(PairFilter.uniform("cloud", "storage"), PairFilter.uniform("storage", "cloud"));
+        double sum = 0;
+        for (int i = 0; i < 10_000; i++) {
+            double value = PairFilter.uniform("word" + i, "other" + (i * 7));
+            assertTrue(value >= 0 && value < 1);
+            sum += value;
+        }
+        assertEquals(0.5, sum / 10_000, 0.02);
+    }
+
+    @Test
+    void testKeep_SubsamplesFrequentPairsMore() {
+        PairFilter filter = new PairFilter(1, 1e-3);
+        filter.setTotalTokens(100_000);
+
+        int frequentKept = 0;
+        int rareKept = 0;
+        for (int i = 0; i < 2_000; i++) {
+            // p(frequent) ~ 0.17 per word, p(rare) = 1
+            if (filter.keep("data" + i, 5_000, "cloud" + i, 5_000)) {
+                frequentKept++;
+            }
+            if (filter.keep("raft" + i, 20, "paxos" + i, 20)) {
+                rareKept++;
+            }
+        }
+
+        assertEquals(2_000, rareKept);
+        assertTrue(frequentKept < 200, "Kept " + frequentKept);
+        assertEquals(2_000 - frequentKept, filter.getDroppedSampled());
+    }
+
+    @Test
+    void testNone_KeepsEverything() {
+        PairFilter filter = PairFilter.none();
+        filter.setTotalTokens(10);
+
+        assertTrue(filter.keep("cloud", 9, "storage", 1));
+        assertTrue(filter.keep("unseen", 0, "storage", 1));
+        assertEquals(2, filter.getKept());
+    }
+}
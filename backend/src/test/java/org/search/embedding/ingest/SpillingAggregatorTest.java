@@ -0,0 +1,114 @@
+package org.search.embedding.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.search.embedding.model.SiameseEmbedding.TrainingPair;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillingAggregatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static CoOccurrenceAccumulator randomAccumulator(Random random, String[] vocabulary, int pairs) {
+        CoOccurrenceAccumulator accumulator = new CoOccurrenceAccumulator();
+        for (int i = 0; i < pairs; i++) {
+            int word1 = accumulator.getWords().intern(vocabulary[random.nextInt(vocabulary.length)]);
+            int word2 = accumulator.getWords().intern(vocabulary[random.nextInt(vocabulary.length)]);
+            accumulator.accept(word1, word2, 1.0f / (1 + random.nextInt(5)));
+        }
+        return accumulator;
+    }
+
+    private static Map<String, Float> labels(List<TrainingPair> pairs) {
+        Map<String, Float> result = new HashMap<>();
+        for (TrainingPair pair : pairs) {
+            String key = pair.word1.compareTo(pair.word2) < 0
+                    ? pair.word1 + "|" + pair.word2 : pair.word2 + "|" + pair.word1;
+            assertNull(result.put(key, pair.similarity), "Duplicate pair " + key);
+        }
+        return result;
+    }
+
+    @Test
+    void testMerge_SumsWeightsAcrossRuns() throws IOException {
+        CoOccurrenceAccumulator first = new CoOccurrenceAccumulator();
+        first.accept(first.getWords().intern("aws"), first.getWords().intern("s3"), 0.5f);
+        first.accept(first.getWords().intern("aws"), first.getWords().intern("ec2"), 1.0f);
+
+        CoOccurrenceAccumulator second = new CoOccurrenceAccumulator();
+        int s3 = second.getWords().intern("s3");
+        int aws = second.getWords().intern("aws");
+        second.accept(s3, aws, 0.25f);
+
+        try (SpillingAggregator spiller = new SpillingAggregator(tempDir)) {
+            spiller.spill(first);
+            spiller.spill(second);
+            assertEquals(2, spiller.getRunCount());
+            assertEquals(3, spiller.getSpilledPairs());
+
+            WordInterner words = spiller.getWords();
+            Map<String, Float> merged = new HashMap<>();
+            List<Long> keys = new ArrayList<>();
+            spiller.merge((word1, word2, weight) -> {
+                merged.put(words.word(word1) + "|" + words.word(word2), weight);
+                keys.add(PairKey.pack(word1, word2));
+            });
+
+            assertEquals(Map.of("aws|s3", 0.75f, "aws|ec2", 1.0f), merged);
+            assertTrue(keys.get(0) < keys.get(1), "Pairs come out in key order");
+        }
+    }
+
+    @Test
+    void testWriteTrainingPairs_MatchesInMemoryAggregation() throws IOException {
+        String[] vocabulary = new String[60];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = "word" + i;
+        }
+        Random random = new Random(3);
+        CoOccurrenceAccumulator inMemory = new CoOccurrenceAccumulator();
+
+        Map<String, Float> spilled;
+        try (SpillingAggregator spiller = new SpillingAggregator(tempDir)) {
+            for (int run = 0; run < 8; run++) {
+                CoOccurrenceAccumulator part = randomAccumulator(random, vocabulary, 400);
+                spiller.spill(part);
+                inMemory.mergeFrom(part);
+            }
+            List<TrainingPair> merged = new ArrayList<>();
+            spiller.writeTrainingPairs(PairFilter.none(),
+                    (word1, word2, similarity) -> merged.add(new TrainingPair(word1, word2, similarity)));
+            spilled = labels(merged);
+        }
+
+        Map<String, Float> expected = labels(inMemory.toTrainingPairs());
+        assertEquals(expected.keySet(), spilled.keySet());
+        expected.forEach((key, label) -> assertEquals(label, spilled.get(key), 1e-4f, key));
+    }
+
+    @Test
+    void testClose_DeletesRunFiles() throws IOException {
+        SpillingAggregator spiller = new SpillingAggregator(tempDir);
+        spiller.spill(randomAccumulator(new Random(1), new String[]{"cloud", "storage", "bucket"}, 10));
+        spiller.spill(new CoOccurrenceAccumulator());
+        assertEquals(1, spiller.getRunCount());
+
+        spiller.close();
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.search.embedding.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenScannerTest {
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(TokenScanner.STOP_WORDS));
+
+    /**
+     * Regex tokenizer the scanner replaces, kept as the reference for its rules
+     */
+    static List<String> legacyTokenize(String sentence) {
+        String cleaned = sentence.toLowerCase()
+                .replaceAll("[^a-z0-9\\s-]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+        if (cleaned.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(cleaned.split("\\s+"))
+                .filter(word -> word.length() > 2)
+                .filter(word -> !STOP_WORDS.contains(word))
+                .filter(word -> !word.matches("\\d+"))
+                .collect(Collectors.toList());
+    }
+
+    private static List<List<String>> sentences(String text) throws IOException {
+        List<List<String>> sentences = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        new TokenScanner().scan(new StringReader(text), new TokenScanner.TokenHandler() {
+            @Override
+            public void onToken(char[] chars, int start, int length) {
+                current.add(new String(chars, start, length));
+            }
+
+            @Override
+            public void onSentenceEnd() {
+                if (!current.isEmpty()) {
+                    sentences.add(new ArrayList<>(current));
+                    current.clear();
+                }
+            }
+        });
+        return sentences;
+    }
+
+    @Test
+    void testScan_SplitsSentencesAndFilters() throws IOException {
+        List<List<String>> sentences = sentences("Hello, World! The AWS S3 service... stores 1234 objects?");
+
+        assertEquals(List.of(
+                List.of("hello", "world"),
+                List.of("aws", "service"),
+                List.of("stores", "objects")
+        ), sentences);
+    }
+
+    @Test
+    void testScan_KeepsHyphensAndMixedDigits() throws IOException {
+        assertEquals(List.of(List.of("real-time", "ec2", "---")), sentences("Real-time EC2 (42) ---"));
+    }
+
+    @Test
+    void testScan_TokensSpanningBufferChunks() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("word").append(i).append(' ');
+        }
+
+        List<List<String>> sentences = sentences(text.toString());
+
+        assertEquals(1, sentences.size());
+        assertEquals(5000, sentences.get(0).size());
+        assertEquals("word4999", sentences.get(0).get(4999));
+    }
+
+    @Test
+    void testScan_EmptyInput() throws IOException {
+        assertTrue(sentences("").isEmpty());
+        assertTrue(sentences("?!.").isEmpty());
+    }
+
+    @Test
+    void testIsStopWord() {
+        char[] text = "xxthexxwith".toCharArray();
+        assertTrue(TokenScanner.isStopWord(text, 2, 3));
+        assertTrue(TokenScanner.isStopWord(text, 7, 4));
+        assertFalse(TokenScanner.isStopWord(text, 0, 4));
+    }
+
+    @Test
+    void testScan_MatchesLegacyTokenizer() {
+        String alphabet = "abcxyzABCXYZ0123456789-- \t\n,;:()'\"/éÉİKß_";
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            StringBuilder sentence = new StringBuilder();
+            int length = random.nextInt(60);
+            for (int i = 0; i < length; i++) {
+                if (random.nextInt(8) == 0) {
+                    sentence.append(TokenScanner.STOP_WORDS[random.nextInt(TokenScanner.STOP_WORDS.length)]).append(' ');
+                } else {
+                    sentence.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+            }
+
+            List<String> actual = new ArrayList<>();
+            new TokenScanner().scan(sentence, new TokenScanner.TokenHandler() {
+                @Override
+                public void onToken(char[] chars, int start, int len) {
+                    actual.add(new String(chars, start, len));
+                }
+
+                @Override
+                public void onSentenceEnd() {
+                }
+            });
+
+            assertEquals(legacyTokenize(sentence.toString()), actual, "Input: " + sentence);
+        }
+    }
+}
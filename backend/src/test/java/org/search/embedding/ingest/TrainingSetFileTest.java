@@ -0,0 +1,135 @@
+package org.search.embedding.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.search.embedding.model.SiameseEmbedding.TrainingPair;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrainingSetFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<TrainingPair> randomPairs(int count, long seed) {
+        Random random = new Random(seed);
+        List<TrainingPair> pairs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pairs.add(new TrainingPair("word" + random.nextInt(500), "término" + random.nextInt(500),
+                    random.nextFloat()));
+        }
+        return pairs;
+    }
+
+    @Test
+    void testWriteAndOpen_RoundTripsPairs() throws IOException {
+        List<TrainingPair> pairs = randomPairs(20_000, 5);
+        Path file = tempDir.resolve("set.tset");
+
+        TrainingSetFile.write(file, pairs, 1234L);
+        TrainingSetFile set = TrainingSetFile.open(file);
+
+        assertEquals(pairs.size(), set.size());
+        assertEquals(1234L, set.getSourceFingerprint());
+        assertEquals(Long.valueOf(1234L), TrainingSetFile.readSourceFingerprint(file));
+        List<TrainingPair> loaded = set.getPairs();
+        Iterator<TrainingPair> expected = pairs.iterator();
+        for (TrainingPair pair : loaded) {
+            TrainingPair original = expected.next();
+            assertEquals(original.word1, pair.word1);
+            assertEquals(original.word2, pair.word2);
+            assertEquals(original.similarity, pair.similarity);
+        }
+        assertTrue(set.getVocabulary().size() <= 1000);
+    }
+
+    @Test
+    void testWriteAndOpen_EmptySet() throws IOException {
+        Path file = tempDir.resolve("empty.tset");
+        TrainingSetFile.write(file, List.of(), 0L);
+
+        TrainingSetFile set = TrainingSetFile.open(file);
+
+        assertEquals(0, set.size());
+        assertTrue(set.getPairs().isEmpty());
+        assertTrue(set.getVocabulary().isEmpty());
+    }
+
+    @Test
+    void testOpen_DetectsCorruption() throws IOException {
+        Path file = tempDir.resolve("set.tset");
+        TrainingSetFile.write(file, randomPairs(100, 1), 0L);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(96 + 12 * 50 + 8);
+            raf.writeByte(raf.readByte() ^ 0x01);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> TrainingSetFile.open(file));
+        assertTrue(e.getMessage().contains("checksum"));
+    }
+
+    @Test
+    void testOpen_RejectsOtherFiles() throws IOException {
+        Path text = Files.writeString(tempDir.resolve("notes.txt"), "x".repeat(100));
+        Path tiny = Files.writeString(tempDir.resolve("tiny.tset"), "TSET");
+
+        assertThrows(IOException.class, () -> TrainingSetFile.open(text));
+        assertThrows(IOException.class, () -> TrainingSetFile.open(tiny));
+        assertNull(TrainingSetFile.readSourceFingerprint(text));
+        assertNull(TrainingSetFile.readSourceFingerprint(tempDir.resolve("missing.tset")));
+    }
+
+    @Test
+    void testWriter_AbortLeavesNoFile() throws IOException {
+        Path file = tempDir.resolve("aborted.tset");
+        TrainingSetFile.Writer writer = new TrainingSetFile.Writer(file, 0L);
+        writer.add("cloud", "storage", 1.0f);
+        writer.abort();
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testWriter_ReplacesExistingFile() throws IOException {
+        Path file = tempDir.resolve("set.tset");
+        TrainingSetFile.write(file, randomPairs(10, 1), 1L);
+
+        TrainingSetFile.write(file, randomPairs(3, 2), 2L);
+
+        TrainingSetFile set = TrainingSetFile.open(file);
+        assertEquals(3, set.size());
+        assertEquals(2L, set.getSourceFingerprint());
+    }
+
+    @Test
+    void testWriter_StoresIngestionStats() throws IOException {
+        Path file = tempDir.resolve("set.tset");
+        try (TrainingSetFile.Writer writer = new TrainingSetFile.Writer(file, 0L)) {
+            writer.add("cloud", "storage", 0.5f);
+            writer.add("cloud", "bucket", 0.25f);
+            writer.setIngestionStats(1000L, 40, 6L, 3L);
+        }
+        TrainingSetFile.write(tempDir.resolve("plain.tset"), randomPairs(3, 2), 0L);
+
+        Map<String, Object> stats = TrainingSetFile.open(file).getIngestionStats();
+        assertEquals(1000L, stats.get("tokens"));
+        assertEquals(40, stats.get("wordsSeen"));
+        assertEquals(3, stats.get("wordsKept"));
+        assertEquals(11L, stats.get("uniquePairs"));
+        assertEquals(2L, stats.get("keptPairs"));
+        assertTrue(TrainingSetFile.open(tempDir.resolve("plain.tset")).getIngestionStats().isEmpty());
+    }
+}
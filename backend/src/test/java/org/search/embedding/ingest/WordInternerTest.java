@@ -0,0 +1,53 @@
+package org.search.embedding.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordInternerTest {
+
+    @Test
+    void testIntern_AssignsIdsInFirstSeenOrder() {
+        WordInterner interner = new WordInterner();
+        char[] text = "cloud storage cloud".toCharArray();
+
+        assertEquals(0, interner.intern(text, 0, 5));
+        assertEquals(1, interner.intern(text, 6, 7));
+        assertEquals(0, interner.intern(text, 14, 5));
+        assertEquals(1, interner.intern("storage"));
+        assertEquals(2, interner.size());
+        assertEquals("storage", interner.word(1));
+    }
+
+    @Test
+    void testIntern_GrowsPastInitialCapacity() {
+        WordInterner interner = new WordInterner();
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, interner.intern("word" + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            char[] chars = ("word" + i).toCharArray();
+            assertEquals(i, interner.intern(chars, 0, chars.length));
+        }
+        assertEquals(10_000, interner.size());
+    }
+
+    @Test
+    void testGetMemoryBytes_CountsWordStrings() {
+        WordInterner interner = new WordInterner();
+        long empty = interner.getMemoryBytes();
+        interner.intern("x".repeat(1000));
+        assertTrue(interner.getMemoryBytes() >= empty + 1000);
+
+        interner.clear();
+        assertEquals(0, interner.size());
+        assertEquals(empty, interner.getMemoryBytes());
+        assertEquals(0, interner.intern("cloud"));
+    }
+
+    @Test
+    void testWord_UnknownId() {
+        WordInterner interner = new WordInterner();
+        assertThrows(IndexOutOfBoundsException.class, () -> interner.word(0));
+    }
+}
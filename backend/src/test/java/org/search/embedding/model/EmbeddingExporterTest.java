@@ -0,0 +1,79 @@
+package org.search.embedding.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingExporterTest {
+
+    private final EmbeddingExporter exporter = new EmbeddingExporter(List.of("aws", "s3\"x"), matrix());
+
+    private static EmbeddingMatrix matrix() {
+        EmbeddingMatrix matrix = new EmbeddingMatrix(2, 2);
+        matrix.setRow(0, new float[]{1.0f, 0.5f});
+        matrix.setRow(1, new float[]{-2.0f, 0.25f});
+        return matrix;
+    }
+
+    private byte[] export(EmbeddingExporter.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.write(format, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void testNdjson_OneEscapedObjectPerLine() throws Exception {
+        String[] lines = new String(export(EmbeddingExporter.Format.NDJSON), StandardCharsets.UTF_8).split("\n");
+
+        assertEquals(2, lines.length);
+        JsonNode second = new ObjectMapper().readTree(lines[1]);
+        assertEquals("s3\"x", second.get("word").asText());
+        assertEquals(-2.0, second.get("embedding").get(0).asDouble());
+        assertEquals(0.25, second.get("embedding").get(1).asDouble());
+    }
+
+    @Test
+    void testWord2VecText() throws Exception {
+        String text = new String(export(EmbeddingExporter.Format.WORD2VEC_TEXT), StandardCharsets.UTF_8);
+
+        assertEquals("2 2\naws 1.0 0.5\ns3\"x -2.0 0.25\n", text);
+    }
+
+    @Test
+    void testWord2VecBinary() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(export(EmbeddingExporter.Format.WORD2VEC_BINARY))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        // "2 2\n" + "aws " + 2 floats + "\n" + ...
+        assertEquals("2 2\naws ", new String(buffer.array(), 0, 8, StandardCharsets.US_ASCII));
+        assertEquals(1.0f, buffer.getFloat(8));
+        assertEquals(0.5f, buffer.getFloat(12));
+        assertEquals('\n', buffer.get(16));
+        assertEquals(4 + (4 + 8 + 1) + (5 + 8 + 1), buffer.capacity());
+    }
+
+    @Test
+    void testFloat32WithVocabularySidecar() throws Exception {
+        ByteBuffer matrix = ByteBuffer.wrap(export(EmbeddingExporter.Format.FLOAT32)).order(ByteOrder.LITTLE_ENDIAN);
+        String vocabulary = new String(export(EmbeddingExporter.Format.VOCABULARY), StandardCharsets.UTF_8);
+
+        assertEquals(16, matrix.capacity());
+        assertEquals(-2.0f, matrix.getFloat(8));
+        assertEquals("aws\ns3\"x\n", vocabulary);
+    }
+
+    @Test
+    void testParseFormat() {
+        assertEquals(EmbeddingExporter.Format.WORD2VEC_BINARY, EmbeddingExporter.Format.parse("word2vec-bin"));
+        assertThrows(IllegalArgumentException.class, () -> EmbeddingExporter.Format.parse("csv"));
+        assertThrows(IllegalArgumentException.class, () -> new EmbeddingExporter(List.of("one"), matrix()));
+    }
+}
@@ -0,0 +1,48 @@
+package org.search.embedding.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingMatrixTest {
+
+    @Test
+    void testSetAndGetRow() {
+        EmbeddingMatrix matrix = new EmbeddingMatrix(2, 3);
+        matrix.setRow(1, new float[]{1f, 2f, 3f});
+
+        assertArrayEquals(new float[]{1f, 2f, 3f}, matrix.getRow(1));
+        assertArrayEquals(new float[]{0f, 0f, 0f}, matrix.getRow(0));
+    }
+
+    @Test
+    void testCosine() {
+        EmbeddingMatrix matrix = new EmbeddingMatrix(3, 2);
+        matrix.setRow(0, new float[]{1f, 0f});
+        matrix.setRow(1, new float[]{3f, 0f});
+        matrix.setRow(2, new float[]{0f, 2f});
+
+        assertEquals(1.0f, matrix.cosine(0, 1), 1e-6f);
+        assertEquals(0.0f, matrix.cosine(0, 2), 1e-6f);
+    }
+
+    @Test
+    void testCosine_ZeroVector() {
+        EmbeddingMatrix matrix = new EmbeddingMatrix(2, 2);
+        matrix.setRow(0, new float[]{1f, 1f});
+
+        assertEquals(0.0f, matrix.cosine(0, 1));
+    }
+
+    @Test
+    void testSetRow_LengthMismatch() {
+        EmbeddingMatrix matrix = new EmbeddingMatrix(1, 3);
+        assertThrows(IllegalArgumentException.class, () -> matrix.setRow(0, new float[]{1f}));
+    }
+
+    @Test
+    void testMemoryBytes() {
+        EmbeddingMatrix matrix = new EmbeddingMatrix(10, 4);
+        assertEquals((10 * 4 + 10) * Float.BYTES, matrix.getMemoryBytes());
+    }
+}
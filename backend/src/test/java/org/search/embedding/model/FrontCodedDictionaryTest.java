@@ -0,0 +1,103 @@
+package org.search.embedding.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrontCodedDictionaryTest {
+
+    @Test
+    void testLookups_MatchSortedList() {
+        Random random = new Random(3);
+        TreeSet<String> words = new TreeSet<>();
+        while (words.size() < 1000) {
+            // Short alphabet so neighbours share long prefixes
+            StringBuilder word = new StringBuilder();
+            for (int i = 1 + random.nextInt(8); i > 0; i--) {
+                word.append((char) ('a' + random.nextInt(4)));
+            }
+            words.add(word.toString());
+        }
+        List<String> sorted = new ArrayList<>(words);
+
+        FrontCodedDictionary dictionary = FrontCodedDictionary.of(sorted);
+
+        assertEquals(sorted.size(), dictionary.size());
+        for (int id = 0; id < sorted.size(); id++) {
+            assertEquals(sorted.get(id), dictionary.word(id));
+            assertEquals(id, dictionary.indexOf(sorted.get(id)));
+        }
+        assertEquals(sorted, new ArrayList<>(dictionary.asList()));
+        assertEquals(-1, dictionary.indexOf("e"));
+        assertEquals(-1, dictionary.indexOf(""));
+    }
+
+    @Test
+    void testOf_DropsDuplicatesAndSorts() {
+        FrontCodedDictionary dictionary = FrontCodedDictionary.of(List.of("s3", "aws", "s3", "bucket"));
+
+        assertEquals(List.of("aws", "bucket", "s3"), dictionary.asList());
+        assertTrue(dictionary.contains("bucket"));
+        assertFalse(dictionary.contains("buck"));
+        assertThrows(IndexOutOfBoundsException.class, () -> dictionary.word(3));
+    }
+
+    @Test
+    void testFindByPrefix_Pages() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            words.add(String.format("ec2-%02d", i));
+        }
+        words.addAll(List.of("ebs", "ecr", "ecs", "eks"));
+        FrontCodedDictionary dictionary = FrontCodedDictionary.of(words);
+
+        assertEquals(40, dictionary.countPrefix("ec2"));
+        assertEquals(List.of("ec2-00", "ec2-01"), dictionary.findByPrefix("ec2", 0, 2));
+        assertEquals(List.of("ec2-38", "ec2-39"), dictionary.findByPrefix("ec2", 38, 10));
+        assertEquals(List.of(), dictionary.findByPrefix("ec2", 40, 10));
+        assertEquals(List.of("ecr", "ecs"), dictionary.findByPrefix("ec", 40, 10));
+        assertEquals(0, dictionary.countPrefix("z"));
+        assertEquals(44, dictionary.countPrefix(""));
+    }
+
+    @Test
+    void testNonAsciiWords() {
+        List<String> words = List.of("café", "cafe", "über", "naïve", "日本");
+        FrontCodedDictionary dictionary = FrontCodedDictionary.of(words);
+
+        for (String word : words) {
+            assertEquals(word, dictionary.word(dictionary.indexOf(word)));
+        }
+        assertEquals(List.of("cafe", "café"), dictionary.findByPrefix("caf", 0, 10));
+    }
+
+    @Test
+    void testEmpty() {
+        FrontCodedDictionary dictionary = FrontCodedDictionary.of(List.of());
+
+        assertEquals(0, dictionary.size());
+        assertEquals(-1, dictionary.indexOf("aws"));
+        assertTrue(dictionary.findByPrefix("", 0, 10).isEmpty());
+        assertTrue(dictionary.asList().isEmpty());
+        assertFalse(dictionary.asList().iterator().hasNext());
+    }
+
+    @Test
+    void testCompactness() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            words.add("cloudformation-stack-" + i);
+        }
+        FrontCodedDictionary dictionary = FrontCodedDictionary.of(words);
+        long rawBytes = words.stream().collect(Collectors.summingLong(String::length));
+
+        assertTrue(dictionary.getMemoryBytes() < rawBytes / 2,
+                "expected front coding to halve " + rawBytes + " bytes, got " + dictionary.getMemoryBytes());
+    }
+}
@@ -0,0 +1,80 @@
+package org.search.embedding.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LossHistoryTest {
+
+    @Test
+    void testAdd_KeepsEveryEpochUntilFull() {
+        LossHistory history = new LossHistory(4);
+        history.add(4f);
+        history.add(3f);
+        history.add(2f);
+
+        assertArrayEquals(new float[]{4f, 3f, 2f}, history.getValues());
+        assertEquals(1, history.getEpochsPerPoint());
+    }
+
+    @Test
+    void testAdd_HalvesResolutionWhenFull() {
+        LossHistory history = new LossHistory(4);
+        for (int epoch = 1; epoch <= 8; epoch++) {
+            history.add(epoch);
+        }
+
+        // Points are means over pairs of epochs: (1,2) (3,4) (5,6) (7,8)
+        assertArrayEquals(new float[]{1.5f, 3.5f, 5.5f, 7.5f}, history.getValues());
+        assertEquals(2, history.getEpochsPerPoint());
+
+        // Epoch 9 starts a partly filled point that still shows up
+        history.add(9f);
+        assertArrayEquals(new float[]{1.5f, 3.5f, 5.5f, 7.5f, 9f}, history.getValues());
+
+        // Completing it needs room, so the points are merged again
+        history.add(10f);
+        assertArrayEquals(new float[]{2.5f, 6.5f, 9.5f}, history.getValues());
+        assertEquals(4, history.getEpochsPerPoint());
+    }
+
+    @Test
+    void testAdd_StaysBoundedOverLongRuns() {
+        LossHistory history = new LossHistory(200);
+        for (int epoch = 0; epoch < 100_000; epoch++) {
+            history.add(1f);
+        }
+
+        assertTrue(history.size() <= 200);
+        assertTrue(history.size() > 100);
+        assertEquals(1f, history.getValues()[0]);
+    }
+
+    @Test
+    void testClear() {
+        LossHistory history = new LossHistory(2);
+        history.add(1f);
+        history.add(2f);
+        history.add(3f);
+        history.clear();
+
+        assertTrue(history.isEmpty());
+        assertEquals(1, history.getEpochsPerPoint());
+        assertEquals(0, history.getValues().length);
+    }
+
+    @Test
+    void testSnapshot_IsUnaffectedByLaterEpochs() {
+        LossHistory history = new LossHistory(4);
+        assertSame(LossHistory.Snapshot.EMPTY, history.snapshot());
+
+        history.add(2f);
+        LossHistory.Snapshot snapshot = history.snapshot();
+        history.add(1f);
+        snapshot.getValues()[0] = 99f;
+
+        assertArrayEquals(new float[]{2f}, snapshot.getValues());
+        assertEquals(1, snapshot.getEpochsPerPoint());
+        assertEquals(2, history.snapshot().size());
+    }
+}
@@ -0,0 +1,40 @@
+package org.search.embedding.model;
+
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.search.embedding.model.NDScopeTest.array;
+
+class ModelMemoryTest {
+
+    private final NDManager manager = mock(NDManager.class);
+
+    @Test
+    void testUsage_CountsOpenArraysAndBytes() {
+        NDArray open = array("open", 16);
+        NDArray released = array("released", 1000);
+        when(released.isReleased()).thenReturn(true);
+        when(manager.isOpen()).thenReturn(true);
+        when(manager.getManagedArrays()).thenReturn(List.of(open, released));
+
+        ModelMemory.Usage usage = ModelMemory.usage(manager, null);
+
+        assertEquals(1, usage.getArrays());
+        assertEquals(16 * Float.BYTES, usage.getBytes());
+    }
+
+    @Test
+    void testUsage_SkipsClosedManagers() {
+        when(manager.isOpen()).thenReturn(false);
+
+        ModelMemory.Usage usage = ModelMemory.usage(manager);
+
+        assertEquals(0, usage.getArrays());
+        verify(manager, never()).getManagedArrays();
+    }
+}
@@ -0,0 +1,65 @@
+package org.search.embedding.model;
+
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.DataType;
+import ai.djl.ndarray.types.Shape;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class NDScopeTest {
+
+    private final NDManager parent = mock(NDManager.class);
+    private final NDManager step = mock(NDManager.class);
+
+    @Test
+    void testClose_ClosesSubManagerWithoutWalkingParent() {
+        when(parent.newSubManager()).thenReturn(step);
+
+        try (NDScope scope = NDScope.open(parent, false)) {
+            assertSame(step, scope.getManager());
+        }
+
+        verify(step).close();
+        verify(parent, never()).getManagedArrays();
+    }
+
+    @Test
+    void testDebug_ReportsArraysThatLandOnTheParent() {
+        NDArray parameter = array("parameter", 4);
+        NDArray escaped = array("escaped", 8);
+        when(parent.newSubManager()).thenReturn(step);
+        when(parent.getManagedArrays()).thenReturn(List.of(parameter), List.of(parameter, escaped));
+
+        NDScope scope = NDScope.open(parent, true);
+        scope.close();
+
+        assertEquals(1, scope.getEscapedCount());
+        verify(step).close();
+    }
+
+    @Test
+    void testDebug_CleanScopeReportsNothing() {
+        NDArray parameter = array("parameter", 4);
+        when(parent.newSubManager()).thenReturn(step);
+        when(parent.getManagedArrays()).thenReturn(List.of(parameter));
+
+        NDScope scope = NDScope.open(parent, true);
+        scope.close();
+
+        assertEquals(0, scope.getEscapedCount());
+    }
+
+    static NDArray array(String uid, long size) {
+        NDArray array = mock(NDArray.class);
+        lenient().when(array.getUid()).thenReturn(uid);
+        lenient().when(array.size()).thenReturn(size);
+        lenient().when(array.getDataType()).thenReturn(DataType.FLOAT32);
+        lenient().when(array.getShape()).thenReturn(new Shape(size));
+        return array;
+    }
+}
@@ -91,6 +91,24 @@ class SiameseEmbeddingTest {
         assertTrue(progress.lossHistory.isEmpty());
     }
 
+    @Test
+    void testTrainingProgress_UpdatesAreNewSnapshots() {
+        SiameseEmbedding.TrainingProgress start = new SiameseEmbedding(16, 2.0f, 100, 0.01f).getProgress();
+        LossHistory history = new LossHistory(10);
+        history.add(0.5f);
+
+        SiameseEmbedding.TrainingProgress epoch = start.withStatus(true, "Training...")
+                .withEpoch(1, 0.5f, history.snapshot());
+        history.add(0.25f);
+
+        assertEquals("Not started", start.status);
+        assertEquals(0, start.currentEpoch);
+        assertEquals(1, epoch.currentEpoch);
+        assertEquals(100, epoch.totalEpochs);
+        assertTrue(epoch.isTraining);
+        assertArrayEquals(new float[]{0.5f}, epoch.lossHistory.getValues());
+    }
+
     @Test
     void testIsTrained_UntrainedModel() {
         SiameseEmbedding model = new SiameseEmbedding(16, 2.0f, 100, 0.01f);
@@ -0,0 +1,100 @@
+package org.search.embedding.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testAcquire_AdmitsUpToLimitAndReleasesOnClose() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 2, 0, 0);
+
+        ConcurrencyLimiter.Permit first = limiter.acquire();
+        ConcurrencyLimiter.Permit second = limiter.acquire();
+        assertEquals(2, limiter.getActive());
+
+        first.close();
+        first.close(); // idempotent
+        assertEquals(1, limiter.getActive());
+        limiter.acquire().close();
+        second.close();
+
+        assertEquals(0, limiter.getActive());
+        assertEquals(3L, limiter.getStats().get("admitted"));
+    }
+
+    @Test
+    void testAcquire_RejectsImmediatelyWhenQueueIsFull() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 0, 10_000);
+        limiter.acquire();
+
+        long start = System.nanoTime();
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class, limiter::acquire);
+
+        assertTrue(e.isQueueFull());
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), "Rejection should not wait");
+        assertEquals(1L, limiter.getStats().get("rejectedQueueFull"));
+    }
+
+    @Test
+    void testAcquire_RejectsQueuedRequestAfterMaxWait() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 1, 20);
+        limiter.acquire();
+
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class, limiter::acquire);
+
+        assertFalse(e.isQueueFull());
+        Map<String, Object> stats = limiter.getStats();
+        assertEquals(1L, stats.get("rejectedTimeout"));
+        assertEquals(1L, stats.get("queued"));
+        assertTrue((double) stats.get("maxQueueWaitMs") >= 20.0);
+        assertEquals(0, limiter.getWaiting());
+    }
+
+    @Test
+    void testAcquire_QueuedRequestGetsReleasedPermit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 1, 10_000);
+        ConcurrencyLimiter.Permit held = limiter.acquire();
+
+        Future<ConcurrencyLimiter.Permit> waiter = executor.submit(limiter::acquire);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.getWaiting() == 0) {
+            assertTrue(System.nanoTime() < deadline, "Request never queued");
+            Thread.sleep(5);
+        }
+        held.close();
+
+        waiter.get(5, TimeUnit.SECONDS).close();
+        assertEquals(2L, limiter.getStats().get("admitted"));
+        assertEquals(0, limiter.getActive());
+    }
+
+    @Test
+    void testRetryAfter_TracksMeanServiceTimeWithOneSecondFloor() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 0, 0);
+        assertEquals(1, limiter.retryAfterSeconds());
+
+        ConcurrencyLimiter.Permit permit = limiter.acquire();
+        Thread.sleep(50);
+        permit.close();
+
+        assertTrue((double) limiter.getStats().get("meanServiceMs") >= 50.0);
+        assertEquals(1, limiter.retryAfterSeconds());
+    }
+}
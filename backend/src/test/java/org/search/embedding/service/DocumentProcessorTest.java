@@ -1,14 +1,24 @@
 package org.search.embedding.service;
 
+import org.search.embedding.ingest.TrainingSetFile;
 import org.search.embedding.model.SiameseEmbedding;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,6 +44,207 @@ class DocumentProcessorTest {
         assertTrue(pairs.size() > 0, "Should generate training pairs");
     }
 
+    @Test
+    void testProcessDocumentsFolder_ParallelMatchesSingleWorker() throws IOException {
+        String[] topics = {"cloud storage buckets", "virtual machine instances", "relational database tables"};
+        for (int i = 0; i < 24; i++) {
+            Files.writeString(tempDir.resolve("doc" + i + ".txt"),
+                    "Document " + i + " covers " + topics[i % topics.length] + " and " + topics[(i + 1) % topics.length] + ".");
+        }
+
+        DocumentProcessor sequential = new DocumentProcessor();
+        ReflectionTestUtils.setField(sequential, "parallelism", 1);
+        DocumentProcessor parallel = new DocumentProcessor();
+        ReflectionTestUtils.setField(parallel, "parallelism", 4);
+
+        Map<String, Float> expected = pairLabels(sequential.processDocumentsFolder(tempDir.toString()));
+        Map<String, Float> actual = pairLabels(parallel.processDocumentsFolder(tempDir.toString()));
+        assertEquals(expected.keySet(), actual.keySet());
+        // Weights are summed in a different order, so allow float rounding
+        expected.forEach((key, label) -> assertEquals(label, actual.get(key), 1e-4f, key));
+    }
+
+    @Test
+    void testProcessDocumentsFolder_SpilledMatchesInMemory() throws IOException {
+        String[] topics = {"cloud storage buckets", "virtual machine instances", "relational database tables"};
+        for (int i = 0; i < 12; i++) {
+            Files.writeString(tempDir.resolve("doc" + i + ".txt"),
+                    "Document " + i + " covers " + topics[i % topics.length] + " and " + topics[(i + 1) % topics.length] + ".");
+        }
+
+        DocumentProcessor spilling = new DocumentProcessor();
+        ReflectionTestUtils.setField(spilling, "memoryBudgetMb", 0L);
+        ReflectionTestUtils.setField(spilling, "spillDir", tempDir.resolve("spill").toString());
+
+        Map<String, Float> expected = pairLabels(processor.processDocumentsFolder(tempDir.toString()));
+        List<SiameseEmbedding.TrainingPair> spilled = spilling.processDocumentsFolder(tempDir.toString());
+        Map<String, Float> actual = pairLabels(spilled);
+
+        assertEquals(spilled.size(), actual.size(), "Each pair should appear once");
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((key, label) -> assertEquals(label, actual.get(key), 1e-4f, key));
+        try (Stream<Path> leftovers = Files.list(tempDir.resolve("spill"))) {
+            assertEquals(0, leftovers.count(), "Run files should be removed");
+        }
+    }
+
+    @Test
+    void testProcessDocumentsFolder_LargeDocumentSpillsWhileReading() throws IOException {
+        Random random = new Random(5);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            for (int j = 0; j < 8; j++) {
+                text.append("term").append(random.nextInt(120)).append(' ');
+            }
+            text.append(". ");
+        }
+        Files.writeString(tempDir.resolve("large.txt"), text);
+
+        DocumentProcessor spilling = new DocumentProcessor();
+        ReflectionTestUtils.setField(spilling, "memoryBudgetMb", 0L);
+        ReflectionTestUtils.setField(spilling, "spillDir", tempDir.resolve("spill").toString());
+        ReflectionTestUtils.setField(spilling, "cacheDir", tempDir.resolve("cache").toString());
+
+        Map<String, Float> expected = pairLabels(processor.processDocumentsFolder(tempDir.toString()));
+        TrainingSetFile spilled = spilling.processDocumentsFolder(tempDir.toString(),
+                tempDir.resolve("set.bin"), 7L);
+
+        Map<String, Float> actual = pairLabels(spilled.getPairs());
+        assertEquals(spilled.size(), actual.size(), "Pairs split across runs should be merged");
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((key, label) -> assertEquals(label, actual.get(key), 1e-4f, key));
+        assertEquals(7L, spilled.getSourceFingerprint());
+        try (Stream<Path> entries = Files.list(tempDir.resolve("cache"))) {
+            assertEquals(0, entries.count(), "A document spilled while reading is not cached");
+        }
+    }
+
+    @Test
+    void testProcessDocumentsFolder_SubsamplingAndMinCountShrinkTrainingSet() throws IOException {
+        Random random = new Random(11);
+        String[] common = {"cloud", "data", "service"};
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            text.append(common[random.nextInt(common.length)]).append(' ')
+                    .append("topic").append(random.nextInt(40)).append(' ')
+                    .append(common[random.nextInt(common.length)]).append(' ')
+                    .append("rare").append(i).append(". ");
+        }
+        Files.writeString(tempDir.resolve("corpus.txt"), text);
+
+        List<SiameseEmbedding.TrainingPair> all = processor.processDocumentsFolder(tempDir.toString());
+        DocumentProcessor filtering = new DocumentProcessor();
+        ReflectionTestUtils.setField(filtering, "minCount", 2L);
+        ReflectionTestUtils.setField(filtering, "subsampleThreshold", 1e-3);
+        TrainingSetFile filteredSet = filtering.processDocumentsFolder(tempDir.toString(),
+                tempDir.resolve("filtered.bin"), 0L);
+        List<SiameseEmbedding.TrainingPair> filtered = filteredSet.getPairs();
+
+        Set<String> vocabulary = new HashSet<>();
+        for (SiameseEmbedding.TrainingPair pair : filtered) {
+            vocabulary.add(pair.word1);
+            vocabulary.add(pair.word2);
+        }
+        assertTrue(filtered.size() < all.size() / 2, filtered.size() + " of " + all.size());
+        assertTrue(vocabulary.stream().noneMatch(word -> word.startsWith("rare")));
+
+        Map<String, Object> stats = filteredSet.getIngestionStats();
+        assertEquals((long) all.size(), stats.get("uniquePairs"));
+        assertEquals((long) filtered.size(), stats.get("keptPairs"));
+        assertEquals((long) all.size() - filtered.size(),
+                (long) stats.get("droppedMinCount") + (long) stats.get("droppedSubsampled"));
+        assertTrue((long) stats.get("droppedSubsampled") > 0);
+        assertEquals(vocabulary.size(), stats.get("wordsKept"));
+        assertEquals(1600L, stats.get("tokens"));
+    }
+
+    @Test
+    void testProcessDocumentsFolder_OneEntryPerUniquePair() throws IOException {
+        Files.writeString(tempDir.resolve("doc.txt"),
+                "Cloud storage buckets. Cloud storage buckets. Cloud storage latency.");
+
+        List<SiameseEmbedding.TrainingPair> pairs = processor.processDocumentsFolder(tempDir.toString());
+
+        Map<String, Float> labels = pairLabels(pairs);
+        assertEquals(pairs.size(), labels.size());
+        assertEquals(Set.of("cloud|storage", "buckets|storage", "buckets|cloud", "latency|storage", "cloud|latency"),
+                labels.keySet());
+        for (float label : labels.values()) {
+            assertTrue(label >= 0f && label <= 1f);
+        }
+    }
+
+    @Test
+    void testProcessDocumentsFolder_CachedRunMatchesFreshRun() throws IOException {
+        Path docs = Files.createDirectory(tempDir.resolve("docs"));
+        Files.writeString(docs.resolve("a.txt"), "Cloud storage buckets hold objects. Buckets replicate across regions.");
+        Files.writeString(docs.resolve("b.txt"), "Database indexes speed up queries over large tables.");
+
+        DocumentProcessor cached = new DocumentProcessor();
+        ReflectionTestUtils.setField(cached, "cacheDir", tempDir.resolve("cache").toString());
+
+        Map<String, Float> fresh = pairLabels(processor.processDocumentsFolder(docs.toString()));
+        Map<String, Float> firstRun = pairLabels(cached.processDocumentsFolder(docs.toString()));
+        Map<String, Float> secondRun = pairLabels(cached.processDocumentsFolder(docs.toString()));
+
+        assertEquals(fresh, firstRun);
+        assertEquals(fresh, secondRun);
+        try (var entries = Files.list(tempDir.resolve("cache"))) {
+            assertEquals(2, entries.count());
+        }
+    }
+
+    @Test
+    void testIngestDocuments_WarmsCacheForChangedFiles() throws IOException {
+        Path doc = tempDir.resolve("changed.txt");
+        Files.writeString(doc, "Cloud storage buckets hold objects.");
+
+        assertEquals(0, processor.ingestDocuments(List.of(doc)));
+
+        DocumentProcessor cached = new DocumentProcessor();
+        ReflectionTestUtils.setField(cached, "cacheDir", tempDir.resolve("cache").toString());
+        assertEquals(1, cached.ingestDocuments(List.of(doc, tempDir.resolve("deleted.txt"))));
+        try (var entries = Files.list(tempDir.resolve("cache"))) {
+            assertEquals(1, entries.count());
+        }
+    }
+
+    @Test
+    void testProcessDocumentsFolder_UnreadableFile() throws IOException {
+        Files.writeString(tempDir.resolve("good.txt"), "Cloud storage buckets hold objects.");
+        Files.write(tempDir.resolve("bad.txt"), new byte[]{(byte) 0xC3, (byte) 0x28});
+
+        assertThrows(IOException.class, () -> processor.processDocumentsFolder(tempDir.toString()));
+    }
+
+    @Test
+    void testProcessDocumentsFolder_NestedAndCompressedMatchPlain() throws IOException {
+        String first = "Cloud storage buckets hold objects. Buckets replicate across regions.";
+        String second = "Database indexes speed up queries over large tables.";
+        Path plain = Files.createDirectory(tempDir.resolve("plain"));
+        Files.writeString(plain.resolve("a.txt"), first);
+        Files.writeString(plain.resolve("b.txt"), second);
+
+        Path mixed = Files.createDirectories(tempDir.resolve("mixed/nested"));
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(mixed.resolve("a.txt.gz")))) {
+            out.write(first.getBytes(StandardCharsets.UTF_8));
+        }
+        Files.writeString(mixed.resolve("b.jsonl"), "{\"text\": \"" + second + "\"}\n");
+
+        assertEquals(pairLabels(processor.processDocumentsFolder(plain.toString())),
+                pairLabels(processor.processDocumentsFolder(tempDir.resolve("mixed").toString())));
+    }
+
+    private static Map<String, Float> pairLabels(List<SiameseEmbedding.TrainingPair> pairs) {
+        Map<String, Float> result = new HashMap<>();
+        for (SiameseEmbedding.TrainingPair pair : pairs) {
+            String key = pair.word1.compareTo(pair.word2) < 0
+                    ? pair.word1 + "|" + pair.word2 : pair.word2 + "|" + pair.word1;
+            result.put(key, pair.similarity);
+        }
+        return result;
+    }
+
     @Test
     void testProcessDocumentsFolder_InvalidFolder() {
         assertThrows(IOException.class, () -> {
@@ -70,35 +281,36 @@ class DocumentProcessorTest {
     }
 
     @Test
-    void testProcessSentence() throws Exception {
-        // Access private method via reflection
-        java.lang.reflect.Method method = DocumentProcessor.class.getDeclaredMethod("processSentence", String.class);
-        method.setAccessible(true);
+    void testProcessDocument_MatchesSentenceByProcessing() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            content.append("Amazon S3 stores objects in buckets, version ").append(i)
+                    .append(" of the cloud storage guide! Is EC2 a virtual-machine service? ");
+        }
+        Path doc = tempDir.resolve("large.txt");
+        Files.writeString(doc, content.toString());
 
-        String sentence = "The quick brown fox jumps";
-        @SuppressWarnings("unchecked")
-        List<SiameseEmbedding.TrainingPair> pairs = (List<SiameseEmbedding.TrainingPair>) method.invoke(processor, sentence);
+        List<String> expected = new java.util.ArrayList<>();
+        for (String sentence : content.toString().split("[.!?]+")) {
+            processor.processSentence(sentence).forEach(pair -> expected.add(pair.toString()));
+        }
 
-        assertNotNull(pairs);
-        // Should generate pairs for words within MAX_DISTANCE
+        List<String> actual = new java.util.ArrayList<>();
+        processor.processDocument(doc.toString(), pair -> actual.add(pair.toString()));
+
+        java.util.Collections.sort(expected);
+        java.util.Collections.sort(actual);
+        assertEquals(expected, actual);
     }
 
     @Test
-    void testTokenize() throws Exception {
-        java.lang.reflect.Method method = DocumentProcessor.class.getDeclaredMethod("tokenize", String.class);
-        method.setAccessible(true);
-
-        String text = "Hello, world! This is a TEST.";
-        @SuppressWarnings("unchecked")
-        List<String> tokens = (List<String>) method.invoke(processor, text);
+    void testProcessSentence() {
+        List<SiameseEmbedding.TrainingPair> pairs = processor.processSentence("The quick brown fox jumps");
 
-        assertNotNull(tokens);
-        assertTrue(tokens.contains("hello"));
-        assertTrue(tokens.contains("world"));
-        assertTrue(tokens.contains("test"));
-        assertTrue(tokens.contains("this")); // not in stop words
-        assertFalse(tokens.contains("is")); // stop word
-        assertFalse(tokens.contains("a")); // stop word
+        // "the" is a stop word; the other four words are all within MAX_DISTANCE
+        assertEquals(6, pairs.size());
+        assertTrue(pairs.stream().anyMatch(pair -> pair.word1.equals("quick") && pair.word2.equals("jumps")
+                && pair.similarity == 1.0f / 3));
     }
 
     @Test
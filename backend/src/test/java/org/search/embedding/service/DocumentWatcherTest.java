@@ -0,0 +1,82 @@
+package org.search.embedding.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentWatcherTest {
+
+    @Mock
+    private DocumentProcessor documentProcessor;
+
+    @Mock
+    private TrainingJobService trainingJobService;
+
+    @InjectMocks
+    private DocumentWatcher documentWatcher;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        documentWatcher.stop();
+    }
+
+    @Test
+    void testStart_DisabledByDefault() throws Exception {
+        documentWatcher.start();
+
+        Map<String, Object> status = documentWatcher.getStatus();
+        assertEquals(false, status.get("enabled"));
+        assertEquals(0, status.get("pendingFiles"));
+    }
+
+    @Test
+    void testOnChanged_DebouncesIntoOneBatch() throws Exception {
+        ReflectionTestUtils.setField(documentWatcher, "debounceMs", 200L);
+        TrainingJob job = new TrainingJob("job-1", "watcher");
+        CountDownLatch submitted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            submitted.countDown();
+            return job;
+        }).when(trainingJobService).submit("watcher");
+
+        documentWatcher.onChanged(List.of(Path.of("a.txt")));
+        documentWatcher.onChanged(List.of(Path.of("b.txt"), Path.of("a.txt")));
+        assertEquals(2, documentWatcher.getStatus().get("pendingFiles"));
+
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        verify(documentProcessor, times(1)).ingestDocuments(List.of(Path.of("a.txt"), Path.of("b.txt")));
+        verify(trainingJobService, times(1)).submit("watcher");
+        assertEquals(0, documentWatcher.getStatus().get("pendingFiles"));
+    }
+
+    @Test
+    void testOnChanged_QueueFullSkipsRefresh() throws Exception {
+        ReflectionTestUtils.setField(documentWatcher, "debounceMs", 10L);
+        CountDownLatch rejected = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            rejected.countDown();
+            throw new RejectedExecutionException("full");
+        }).when(trainingJobService).submit("watcher");
+
+        documentWatcher.onChanged(List.of(Path.of("a.txt")));
+
+        assertTrue(rejected.await(5, TimeUnit.SECONDS));
+        verify(documentProcessor).ingestDocuments(List.of(Path.of("a.txt")));
+        assertNull(documentWatcher.getStatus().get("lastJobId"));
+    }
+}
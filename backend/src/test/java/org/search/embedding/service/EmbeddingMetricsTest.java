@@ -0,0 +1,97 @@
+package org.search.embedding.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.search.embedding.model.FrontCodedDictionary;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class EmbeddingMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final EmbeddingMetrics metrics = new EmbeddingMetrics(registry);
+
+    @Test
+    void testRecordModelCall_TimersPerModelAndOperation() {
+        metrics.recordModelCall("custom", "similarity", TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.recordModelCall("custom", "similarity", TimeUnit.MILLISECONDS.toNanos(4));
+        metrics.recordModelCall("generic", "predict", TimeUnit.MILLISECONDS.toNanos(30));
+
+        Timer similarity = registry.get("embedding.model.call")
+                .tags("model", "custom", "operation", "similarity").timer();
+        assertEquals(2, similarity.count());
+        assertEquals(6.0, similarity.totalTime(TimeUnit.MILLISECONDS), 1e-9);
+        assertEquals(1, registry.get("embedding.model.call").tags("model", "generic").timer().count());
+    }
+
+    @Test
+    void testRecordEpoch_TracksDurationAndThroughput() {
+        metrics.recordEpoch(1, 500, TimeUnit.MILLISECONDS.toNanos(250));
+        metrics.recordEpoch(2, 500, TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertEquals(2, registry.get("embedding.training.epoch").timer().count());
+        assertEquals(1000.0, registry.get("embedding.training.pairs").counter().count());
+        assertEquals(1000.0, registry.get("embedding.training.pairs.per.second").gauge().value());
+    }
+
+    @Test
+    void testRecordIngestion_TracksBytesAndPairs() {
+        metrics.recordIngestion(4_000_000, 1234, TimeUnit.SECONDS.toNanos(2));
+
+        assertEquals(4_000_000.0, registry.get("embedding.ingestion.bytes").counter().count());
+        assertEquals(1234.0, registry.get("embedding.ingestion.pairs").summary().totalAmount());
+        assertEquals(2_000_000.0, registry.get("embedding.ingestion.bytes.per.second").gauge().value());
+        assertEquals(1, registry.get("embedding.ingestion.duration").timer().count());
+    }
+
+    @Test
+    void testModelMetrics_GaugesReadTheServices() {
+        EmbeddingService embeddingService = mock(EmbeddingService.class);
+        GenericEmbeddingService genericEmbeddingService = mock(GenericEmbeddingService.class);
+        when(embeddingService.getDictionary()).thenReturn(FrontCodedDictionary.of(List.of("bucket", "storage")));
+        when(embeddingService.getNativeMemoryBytes()).thenReturn(4096L);
+        when(genericEmbeddingService.getCacheMemoryBytes()).thenReturn(512L);
+
+        ModelMetrics modelMetrics = new ModelMetrics();
+        ReflectionTestUtils.setField(modelMetrics, "embeddingService", embeddingService);
+        ReflectionTestUtils.setField(modelMetrics, "genericEmbeddingService", genericEmbeddingService);
+        modelMetrics.bindTo(registry);
+
+        assertEquals(2.0, registry.get("embedding.model.vocabulary.size").gauge().value());
+        assertEquals(4096.0, registry.get("embedding.model.native.memory").tag("model", "custom").gauge().value());
+        assertEquals(0.0, registry.get("embedding.model.native.memory").tag("model", "generic").gauge().value());
+        assertEquals(512.0, registry.get("embedding.model.heap.memory").tag("component", "generic-cache").gauge().value());
+    }
+
+    @Test
+    void testModelMetrics_CoalescingCountersReadTheServices() {
+        EmbeddingService embeddingService = mock(EmbeddingService.class);
+        GenericEmbeddingService genericEmbeddingService = mock(GenericEmbeddingService.class);
+        when(embeddingService.getCoalescingStats()).thenReturn(Map.of(
+                "similarity", Map.of("calls", 10L, "coalesced", 4L, "inFlight", 1),
+                "embedding", Map.of("calls", 0L, "coalesced", 0L, "inFlight", 0)));
+        when(genericEmbeddingService.getCoalescingStats()).thenReturn(
+                Map.of("prediction", Map.of("calls", 7L, "coalesced", 2L, "inFlight", 0)));
+
+        ModelMetrics modelMetrics = new ModelMetrics();
+        ReflectionTestUtils.setField(modelMetrics, "embeddingService", embeddingService);
+        ReflectionTestUtils.setField(modelMetrics, "genericEmbeddingService", genericEmbeddingService);
+        modelMetrics.bindTo(registry);
+
+        assertEquals(10.0, registry.get("embedding.coalescing.calls")
+                .tags("model", "custom", "query", "similarity").functionCounter().count());
+        assertEquals(4.0, registry.get("embedding.coalescing.coalesced")
+                .tags("model", "custom", "query", "similarity").functionCounter().count());
+        assertEquals(1.0, registry.get("embedding.coalescing.in.flight")
+                .tags("model", "custom", "query", "similarity").gauge().value());
+        assertEquals(2.0, registry.get("embedding.coalescing.coalesced")
+                .tags("model", "generic", "query", "prediction").functionCounter().count());
+    }
+}
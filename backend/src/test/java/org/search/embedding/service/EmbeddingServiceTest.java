@@ -1,22 +1,31 @@
 package org.search.embedding.service;
 
+import org.search.embedding.ingest.TrainingSetFile;
 import org.search.embedding.model.SiameseEmbedding;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyFloat;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +34,12 @@ class EmbeddingServiceTest {
     @Mock
     private DocumentProcessor documentProcessor;
 
+    @Mock
+    private GenericEmbeddingService genericEmbeddingService;
+
+    @Mock
+    private TrainingEventBroadcaster trainingEventBroadcaster;
+
     @Mock
     private SiameseEmbedding siameseEmbedding;
 
@@ -32,6 +47,18 @@ class EmbeddingServiceTest {
     @InjectMocks
     private EmbeddingService embeddingService;
 
+    private static TrainingSetFile trainingSet(List<SiameseEmbedding.TrainingPair> pairs) {
+        return trainingSet(pairs, Map.of());
+    }
+
+    private static TrainingSetFile trainingSet(List<SiameseEmbedding.TrainingPair> pairs,
+                                               Map<String, Object> ingestion) {
+        TrainingSetFile set = mock(TrainingSetFile.class);
+        when(set.getPairs()).thenReturn(pairs);
+        when(set.getIngestionStats()).thenReturn(ingestion);
+        return set;
+    }
+
     @Test
     void testTrainModel_Success() throws Exception {
         // Setup
@@ -40,24 +67,26 @@ class EmbeddingServiceTest {
         );
 
         ReflectionTestUtils.setField(embeddingService, "documentsFolder", "/test/docs");
-        when(documentProcessor.processDocumentsFolder("/test/docs")).thenReturn(mockPairs);
+        TrainingSetFile set = trainingSet(mockPairs);
+        when(documentProcessor.processDocumentsFolderToTempFile("/test/docs")).thenReturn(set);
         doReturn(siameseEmbedding).when(embeddingService).createModel(anyInt(), anyFloat(), anyInt(), anyFloat());
-        when(siameseEmbedding.isTrained()).thenReturn(false, true); // Initially false, then true after training
+        when(siameseEmbedding.isTrained()).thenReturn(true);
 
         // Execute
         embeddingService.trainModel();
 
         // Verify
-        verify(documentProcessor).processDocumentsFolder("/test/docs");
+        verify(documentProcessor).processDocumentsFolderToTempFile("/test/docs");
         verify(embeddingService).createModel(anyInt(), anyFloat(), anyInt(), anyFloat());
-        verify(siameseEmbedding).train(mockPairs);
+        verify(siameseEmbedding).train(eq(mockPairs), any());
+        verify(genericEmbeddingService).precomputeVocabulary(anyList());
         assertTrue(embeddingService.isModelTrained());
     }
 
     @Test
     void testTrainModel_DocumentProcessingFails() throws Exception {
         // Setup
-        when(documentProcessor.processDocumentsFolder(anyString()))
+        when(documentProcessor.processDocumentsFolderToTempFile(anyString()))
             .thenThrow(new RuntimeException("Processing failed"));
         when(documentProcessor.createSamplePairs()).thenReturn(List.of());
 
@@ -75,9 +104,9 @@ class EmbeddingServiceTest {
         SiameseEmbedding oldModel = mock(SiameseEmbedding.class);
         ReflectionTestUtils.setField(embeddingService, "model", oldModel);
         ReflectionTestUtils.setField(embeddingService, "documentsFolder", "/test/docs");
-        when(oldModel.isTrained()).thenReturn(true);
 
-        when(documentProcessor.processDocumentsFolder("/test/docs")).thenReturn(mockPairs);
+        TrainingSetFile set = trainingSet(mockPairs);
+        when(documentProcessor.processDocumentsFolderToTempFile("/test/docs")).thenReturn(set);
         doReturn(siameseEmbedding).when(embeddingService).createModel(anyInt(), anyFloat(), anyInt(), anyFloat());
 
         // Execute
@@ -86,7 +115,131 @@ class EmbeddingServiceTest {
         // Verify old model was closed
         verify(oldModel).close();
         verify(embeddingService).createModel(anyInt(), anyFloat(), anyInt(), anyFloat());
-        verify(siameseEmbedding).train(mockPairs);
+        verify(siameseEmbedding).train(eq(mockPairs), any());
+    }
+
+    @Test
+    void testTrainModel_GaugesFollowTheCandidateWhileItTrains() throws Exception {
+        // Setup
+        List<SiameseEmbedding.TrainingPair> mockPairs = List.of(
+            new SiameseEmbedding.TrainingPair("word1", "word2", 1.0f)
+        );
+
+        SiameseEmbedding oldModel = mock(SiameseEmbedding.class);
+        ReflectionTestUtils.setField(embeddingService, "model", oldModel);
+        ReflectionTestUtils.setField(embeddingService, "documentsFolder", "/test/docs");
+
+        TrainingSetFile set = trainingSet(mockPairs);
+        when(documentProcessor.processDocumentsFolderToTempFile("/test/docs")).thenReturn(set);
+        doReturn(siameseEmbedding).when(embeddingService).createModel(anyInt(), anyFloat(), anyInt(), anyFloat());
+        when(siameseEmbedding.getNativeMemoryBytes()).thenReturn(8192L);
+        when(siameseEmbedding.getOpenArrayCount()).thenReturn(12);
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ModelMetrics modelMetrics = new ModelMetrics();
+        ReflectionTestUtils.setField(modelMetrics, "embeddingService", embeddingService);
+        ReflectionTestUtils.setField(modelMetrics, "genericEmbeddingService", genericEmbeddingService);
+        modelMetrics.bindTo(registry);
+
+        double[] duringTraining = new double[2];
+        doAnswer(invocation -> {
+            duringTraining[0] = registry.get("embedding.model.native.memory").tag("model", "custom").gauge().value();
+            duringTraining[1] = registry.get("embedding.ndarray.open").tag("model", "custom").gauge().value();
+            return null;
+        }).when(siameseEmbedding).train(eq(mockPairs), any());
+
+        // Execute
+        embeddingService.trainModel();
+
+        // Verify the gauges read the candidate, not the model still serving
+        assertEquals(8192.0, duringTraining[0]);
+        assertEquals(12.0, duringTraining[1]);
+        verify(oldModel, never()).getNativeMemoryBytes();
+        verify(oldModel, never()).getOpenArrayCount();
+    }
+
+    @Test
+    void testTrainModel_ReusesTrainingSetFileWhileCorpusUnchanged(@TempDir Path tempDir) throws Exception {
+        List<SiameseEmbedding.TrainingPair> mockPairs = List.of(
+            new SiameseEmbedding.TrainingPair("aws", "s3", 0.8f),
+            new SiameseEmbedding.TrainingPair("s3", "bucket", 0.5f)
+        );
+        Path setFile = tempDir.resolve("training.tset");
+        ReflectionTestUtils.setField(embeddingService, "documentsFolder", "/test/docs");
+        ReflectionTestUtils.setField(embeddingService, "trainingSetFile", setFile.toString());
+        when(documentProcessor.corpusFingerprint("/test/docs")).thenReturn(42L, 42L, 43L);
+        when(documentProcessor.processDocumentsFolder(eq("/test/docs"), eq(setFile), anyLong())).thenAnswer(invocation -> {
+            try (TrainingSetFile.Writer writer = new TrainingSetFile.Writer(setFile, invocation.getArgument(2))) {
+                for (SiameseEmbedding.TrainingPair pair : mockPairs) {
+                    writer.add(pair.word1, pair.word2, pair.similarity);
+                }
+                writer.setIngestionStats(40L, 3, 1L, 2L);
+            }
+            return TrainingSetFile.open(setFile);
+        });
+        doReturn(siameseEmbedding).when(embeddingService).createModel(anyInt(), anyFloat(), anyInt(), anyFloat());
+
+        embeddingService.trainModel(); // ingests and saves
+        embeddingService.trainModel(); // reuses the file
+        Map<?, ?> reused = (Map<?, ?>) embeddingService.getTrainingStats().get("ingestion");
+        embeddingService.trainModel(); // corpus changed, ingests again
+
+        verify(documentProcessor, times(2)).processDocumentsFolder(eq("/test/docs"), eq(setFile), anyLong());
+        ArgumentCaptor<List<SiameseEmbedding.TrainingPair>> trained = ArgumentCaptor.forClass(List.class);
+        verify(siameseEmbedding, times(3)).train(trained.capture(), any());
+        List<SiameseEmbedding.TrainingPair> reloaded = trained.getAllValues().get(1);
+        assertEquals(2, reloaded.size());
+        assertEquals("s3", reloaded.get(1).word1);
+        assertEquals("bucket", reloaded.get(1).word2);
+        assertEquals(0.5f, reloaded.get(1).similarity);
+        assertEquals(40L, reused.get("tokens"));
+        assertEquals(5L, reused.get("uniquePairs"));
+    }
+
+    @Test
+    void testTrainModel_FromTrainingSetFile(@TempDir Path tempDir) throws Exception {
+        Path setFile = tempDir.resolve("training.tset");
+        TrainingSetFile.write(setFile, List.of(new SiameseEmbedding.TrainingPair("ec2", "instance", 1.0f)), 0L);
+        doReturn(siameseEmbedding).when(embeddingService).createModel(anyInt(), anyFloat(), anyInt(), anyFloat());
+
+        embeddingService.trainModel(setFile);
+
+        verify(documentProcessor, never()).processDocumentsFolderToTempFile(anyString());
+        verify(siameseEmbedding).train(argThat(pairs -> pairs.size() == 1 && pairs.get(0).word2.equals("instance")), any());
+        assertEquals(Map.of("available", false), embeddingService.getTrainingStats().get("ingestion"));
+    }
+
+    @Test
+    void testTrainModel_CancelledKeepsPreviousModel() throws Exception {
+        List<SiameseEmbedding.TrainingPair> mockPairs = List.of(
+            new SiameseEmbedding.TrainingPair("word1", "word2", 1.0f)
+        );
+        SiameseEmbedding oldModel = mock(SiameseEmbedding.class);
+        ReflectionTestUtils.setField(embeddingService, "model", oldModel);
+        ReflectionTestUtils.setField(embeddingService, "documentsFolder", "/test/docs");
+        TrainingSetFile set = trainingSet(mockPairs);
+        when(documentProcessor.processDocumentsFolderToTempFile("/test/docs")).thenReturn(set);
+        doReturn(siameseEmbedding).when(embeddingService).createModel(anyInt(), anyFloat(), anyInt(), anyFloat());
+        doThrow(new CancellationException("Training cancelled")).when(siameseEmbedding).train(anyList(), any());
+
+        // The trainer notices the request mid-run
+        assertThrows(CancellationException.class, () -> embeddingService.trainModel(() -> false));
+
+        verify(siameseEmbedding).close();
+        verify(oldModel, never()).close();
+        assertSame(oldModel, ReflectionTestUtils.getField(embeddingService, "model"));
+        verify(genericEmbeddingService, never()).precomputeVocabulary(anyList());
+    }
+
+    @Test
+    void testTrainModel_CancelledBeforeTraining() throws Exception {
+        ReflectionTestUtils.setField(embeddingService, "documentsFolder", "/test/docs");
+        TrainingSetFile set = trainingSet(List.of(new SiameseEmbedding.TrainingPair("word1", "word2", 1.0f)));
+        when(documentProcessor.processDocumentsFolderToTempFile("/test/docs")).thenReturn(set);
+
+        assertThrows(CancellationException.class, () -> embeddingService.trainModel(() -> true));
+
+        verify(embeddingService, never()).createModel(anyInt(), anyFloat(), anyInt(), anyFloat());
     }
 
     @Test
@@ -178,8 +331,8 @@ class EmbeddingServiceTest {
     void testGetProgress_WithModel() {
         // Setup
         ReflectionTestUtils.setField(embeddingService, "model", siameseEmbedding);
-        SiameseEmbedding.TrainingProgress mockProgress = new SiameseEmbedding.TrainingProgress();
-        mockProgress.status = "Training";
+        SiameseEmbedding.TrainingProgress mockProgress = new SiameseEmbedding.TrainingProgress()
+            .withStatus(true, "Training");
         when(siameseEmbedding.getProgress()).thenReturn(mockProgress);
 
         // Execute
@@ -209,21 +362,28 @@ class EmbeddingServiceTest {
     }
 
     @Test
-    void testGetTrainingStats_WithTrainingPairs() {
+    void testGetTrainingStats_WithTrainingPairs() throws Exception {
         // Setup
         List<SiameseEmbedding.TrainingPair> mockPairs = List.of(
             new SiameseEmbedding.TrainingPair("word1", "word2", 1.0f)
         );
-        ReflectionTestUtils.setField(embeddingService, "trainingPairs", mockPairs);
-
+        ReflectionTestUtils.setField(embeddingService, "documentsFolder", "/test/docs");
         Map<String, Object> mockStats = Map.of("totalPairs", 1, "uniqueWords", 2);
+        TrainingSetFile set = trainingSet(mockPairs, Map.of("droppedSubsampled", 3L));
+        when(documentProcessor.processDocumentsFolderToTempFile("/test/docs")).thenReturn(set);
         when(documentProcessor.getProcessingStats(mockPairs)).thenReturn(mockStats);
+        doReturn(siameseEmbedding).when(embeddingService).createModel(anyInt(), anyFloat(), anyInt(), anyFloat());
+        embeddingService.trainModel();
 
         // Execute
         Map<String, Object> result = embeddingService.getTrainingStats();
+        Map<String, Object> again = embeddingService.getTrainingStats();
 
-        // Verify
-        assertEquals(mockStats, result);
+        // Verify: computed once at training time, then served from the cache
+        assertEquals(1, result.get("totalPairs"));
+        assertEquals(Map.of("droppedSubsampled", 3L), result.get("ingestion"));
+        assertSame(result, again);
+        verify(documentProcessor, times(1)).getProcessingStats(mockPairs);
     }
 
     @Test
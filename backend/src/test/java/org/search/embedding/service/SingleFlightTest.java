@@ -0,0 +1,102 @@
+package org.search.embedding.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testExecute_ConcurrentIdenticalCallsShareOneComputation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computations = new AtomicInteger();
+
+        Future<String> leader = executor.submit(() -> flights.execute("key", () -> {
+            computations.incrementAndGet();
+            started.countDown();
+            release.await();
+            return "result";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> follower = executor.submit(() -> flights.execute("key", () -> {
+            computations.incrementAndGet();
+            return "other";
+        }));
+        waitForCoalesced(1);
+        release.countDown();
+
+        assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, computations.get());
+        assertEquals(2, flights.getCalls());
+        assertEquals(0, flights.getInFlight());
+    }
+
+    @Test
+    void testExecute_FailureReachesEveryCaller() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> flights.execute("key", () -> {
+            started.countDown();
+            release.await();
+            throw new IllegalArgumentException("Word not in vocabulary: key");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> follower = executor.submit(() -> flights.execute("key", () -> "unused"));
+        waitForCoalesced(1);
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, leaderError.getCause());
+        assertSame(leaderError.getCause(), followerError.getCause());
+    }
+
+    @Test
+    void testExecute_DoesNotCacheCompletedResults() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+
+        flights.execute("key", () -> "first " + computations.incrementAndGet());
+        String second = flights.execute("key", () -> "second " + computations.incrementAndGet());
+
+        assertEquals("second 2", second);
+        assertEquals(0, flights.getCoalesced());
+        assertEquals(0, flights.getInFlight());
+    }
+
+    @Test
+    void testExecute_DifferentKeysDoNotCoalesce() throws Exception {
+        assertEquals("a", flights.execute("a", () -> "a"));
+        assertEquals("b", flights.execute("b", () -> "b"));
+
+        assertEquals(2, flights.getCalls());
+        assertEquals(0, flights.getCoalesced());
+    }
+
+    private void waitForCoalesced(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flights.getCoalesced() < expected) {
+            assertTrue(System.nanoTime() < deadline, "Follower never joined the flight");
+            Thread.sleep(5);
+        }
+    }
+}
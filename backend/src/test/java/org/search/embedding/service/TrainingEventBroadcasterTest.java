@@ -0,0 +1,46 @@
+package org.search.embedding.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.search.embedding.model.LossHistory;
+import org.search.embedding.model.SiameseEmbedding;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrainingEventBroadcasterTest {
+
+    private final TrainingEventBroadcaster broadcaster = new TrainingEventBroadcaster();
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void testToDelta_CarriesOnlyProgressFields() {
+        LossHistory history = new LossHistory(10);
+        history.add(0.25f);
+        SiameseEmbedding.TrainingProgress progress = new SiameseEmbedding.TrainingProgress(
+                3, 10, 0.25f, true, "Training...", history.snapshot());
+
+        Map<String, Object> delta = TrainingEventBroadcaster.toDelta(progress);
+
+        assertEquals(Map.of("epoch", 3, "totalEpochs", 10, "loss", 0.25f,
+                "status", "Training...", "isTraining", true), delta);
+    }
+
+    @Test
+    void testSubscribe_TracksSubscribers() {
+        assertEquals(0, broadcaster.getSubscriberCount());
+
+        broadcaster.subscribe(new SiameseEmbedding.TrainingProgress());
+        broadcaster.subscribe(new SiameseEmbedding.TrainingProgress());
+
+        assertEquals(2, broadcaster.getSubscriberCount());
+        broadcaster.onProgress(new SiameseEmbedding.TrainingProgress());
+        broadcaster.flush();
+        assertEquals(2, broadcaster.getSubscriberCount());
+    }
+}
@@ -0,0 +1,140 @@
+package org.search.embedding.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrainingJobServiceTest {
+
+    @Mock
+    private EmbeddingService embeddingService;
+
+    @InjectMocks
+    private TrainingJobService trainingJobService;
+
+    @AfterEach
+    void tearDown() {
+        trainingJobService.shutdown();
+    }
+
+    @Test
+    void testSubmit_RunsToCompletion() throws Exception {
+        TrainingJob job = trainingJobService.submit("api");
+
+        awaitState(job, TrainingJob.State.SUCCEEDED);
+        verify(embeddingService).trainModel(any(BooleanSupplier.class));
+        assertSame(job, trainingJobService.getJob(job.getId()));
+        assertNotNull(job.toMap().get("finishedAt"));
+    }
+
+    @Test
+    void testSubmit_JoinsQueuedJob() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockTraining(started, release);
+
+        TrainingJob running = trainingJobService.submit("api");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Requests arriving while one job waits share that job
+        TrainingJob queued = trainingJobService.submit("watcher");
+        TrainingJob joined = trainingJobService.submit("api");
+        assertNotSame(running, queued);
+        assertSame(queued, joined);
+        assertEquals(1, trainingJobService.getQueuedCount());
+
+        release.countDown();
+        awaitState(queued, TrainingJob.State.SUCCEEDED);
+        verify(embeddingService, times(2)).trainModel(any(BooleanSupplier.class));
+    }
+
+    @Test
+    void testCancel_QueuedJobNeverRuns() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockTraining(started, release);
+
+        TrainingJob running = trainingJobService.submit("api");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        TrainingJob queued = trainingJobService.submit("api");
+
+        assertSame(queued, trainingJobService.cancel(queued.getId()));
+        assertEquals(TrainingJob.State.CANCELLED, queued.getState());
+
+        // The freed queue slot takes a new job
+        TrainingJob next = trainingJobService.submit("api");
+        assertNotSame(queued, next);
+
+        release.countDown();
+        awaitState(running, TrainingJob.State.SUCCEEDED);
+        awaitState(next, TrainingJob.State.SUCCEEDED);
+        verify(embeddingService, times(2)).trainModel(any(BooleanSupplier.class));
+    }
+
+    @Test
+    void testCancel_RunningJobStopsCooperatively() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            BooleanSupplier cancelled = invocation.getArgument(0);
+            started.countDown();
+            while (!cancelled.getAsBoolean()) {
+                Thread.sleep(5);
+            }
+            throw new CancellationException("Training cancelled");
+        }).when(embeddingService).trainModel(any(BooleanSupplier.class));
+
+        TrainingJob job = trainingJobService.submit("api");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        trainingJobService.cancel(job.getId());
+
+        awaitState(job, TrainingJob.State.CANCELLED);
+        assertEquals(true, job.toMap().get("cancelRequested"));
+    }
+
+    @Test
+    void testSubmit_FailureIsRecorded() throws Exception {
+        doThrow(new IllegalStateException("No training pairs generated"))
+                .when(embeddingService).trainModel(any(BooleanSupplier.class));
+
+        TrainingJob job = trainingJobService.submit("api");
+
+        awaitState(job, TrainingJob.State.FAILED);
+        assertEquals("No training pairs generated", job.toMap().get("error"));
+    }
+
+    @Test
+    void testGetJob_Unknown() {
+        assertNull(trainingJobService.getJob("missing"));
+        assertNull(trainingJobService.cancel("missing"));
+        assertTrue(trainingJobService.getJobs().isEmpty());
+    }
+
+    private void blockTraining(CountDownLatch started, CountDownLatch release) throws Exception {
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(embeddingService).trainModel(any(BooleanSupplier.class));
+    }
+
+    private static void awaitState(TrainingJob job, TrainingJob.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (job.getState() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(state, job.getState());
+    }
+}
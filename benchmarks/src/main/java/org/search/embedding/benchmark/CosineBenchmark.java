@@ -0,0 +1,101 @@
+package org.search.embedding.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.search.embedding.model.EmbeddingMatrix;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cosine kernels. matrix is EmbeddingMatrix.cosine, a single dot product
+ * over rows with precomputed inverse norms, as used for the custom model
+ * and the generic vocabulary cache. arrays is the three-accumulator kernel
+ * over separate vectors that the generic model falls back to for words
+ * outside its cache. Rows are picked at random, so large vocabularies
+ * measure cache misses as well as arithmetic. Scores are per comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CosineBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({"1000", "100000"})
+    public int vocabularySize;
+
+    @Param({"64", "384"})
+    public int dimension;
+
+    private EmbeddingMatrix matrix;
+    private float[][] vectors;
+    private int[] rows1;
+    private int[] rows2;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        matrix = new EmbeddingMatrix(vocabularySize, dimension);
+        vectors = new float[vocabularySize][dimension];
+        for (int row = 0; row < vocabularySize; row++) {
+            for (int i = 0; i < dimension; i++) {
+                vectors[row][i] = (float) random.nextGaussian();
+            }
+            matrix.setRow(row, vectors[row]);
+        }
+        rows1 = new int[PAIRS];
+        rows2 = new int[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            rows1[i] = random.nextInt(vocabularySize);
+            rows2[i] = random.nextInt(vocabularySize);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public float matrix() {
+        float sum = 0f;
+        for (int i = 0; i < PAIRS; i++) {
+            sum += matrix.cosine(rows1[i], rows2[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public float arrays() {
+        float sum = 0f;
+        for (int i = 0; i < PAIRS; i++) {
+            sum += cosine(vectors[rows1[i]], vectors[rows2[i]]);
+        }
+        return sum;
+    }
+
+    /**
+     * Same kernel as GenericEmbeddingService.cosineSimilarity
+     */
+    private static float cosine(float[] v1, float[] v2) {
+        float dot = 0f, n1 = 0f, n2 = 0f;
+        for (int i = 0; i < v1.length; i++) {
+            dot += v1[i] * v2[i];
+            n1 += v1[i] * v1[i];
+            n2 += v2[i] * v2[i];
+        }
+        double denom = Math.sqrt(n1) * Math.sqrt(n2);
+        return denom == 0 ? 0f : (float) (dot / denom);
+    }
+}
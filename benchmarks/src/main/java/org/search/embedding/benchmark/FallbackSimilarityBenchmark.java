@@ -0,0 +1,62 @@
+package org.search.embedding.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.search.embedding.service.HuggingFaceService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HuggingFaceService's character-feature similarity, the offline fallback
+ * for the generic model. It builds two 128-wide vectors per call, so cost
+ * follows word length rather than vocabulary size; the vocabulary only
+ * changes which words get compared. Scores are per comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FallbackSimilarityBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({"1000", "100000"})
+    public int vocabularySize;
+
+    private final HuggingFaceService service = new HuggingFaceService();
+    private String[] words1;
+    private String[] words2;
+
+    @Setup
+    public void setUp() {
+        SyntheticCorpus corpus = new SyntheticCorpus(vocabularySize, 42);
+        words1 = new String[PAIRS];
+        words2 = new String[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            words1[i] = corpus.nextWord();
+            words2[i] = corpus.nextWord();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public float calculateGenericSimilarity() {
+        float sum = 0f;
+        for (int i = 0; i < PAIRS; i++) {
+            sum += service.calculateGenericSimilarity(words1[i], words2[i]);
+        }
+        return sum;
+    }
+}
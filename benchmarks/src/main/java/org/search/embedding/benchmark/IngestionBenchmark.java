@@ -0,0 +1,128 @@
+package org.search.embedding.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.search.embedding.ingest.TokenScanner;
+import org.search.embedding.ingest.TrainingSetFile;
+import org.search.embedding.service.DocumentProcessor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Folder ingestion through DocumentProcessor, as training runs it: the
+ * corpus is split across DOCUMENTS text files, which are read, tokenized,
+ * paired and deduplicated in parallel, labelled and written to a training
+ * set file. scan isolates the tokenizer on the same text with a handler
+ * that does nothing, as a floor for the full run. regexTokenize runs the
+ * replaceAll/split/matches tokenizer that TokenScanner replaced over the
+ * same text, one sentence at a time, for comparison with scan. Scores
+ * are per pass over the whole corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionBenchmark {
+
+    private static final int DOCUMENTS = 16;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(TokenScanner.STOP_WORDS));
+
+    @Param({"1000", "10000", "100000"})
+    public int vocabularySize;
+
+    @Param({"1000", "10000"})
+    public int sentences;
+
+    private final DocumentProcessor processor = new DocumentProcessor();
+    private String document;
+    private Path folder;
+    private Path output;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] corpus = new SyntheticCorpus(vocabularySize, 42).sentences(sentences);
+        document = String.join(" ", corpus);
+        folder = Files.createTempDirectory("ingestion-benchmark");
+        int perDocument = (corpus.length + DOCUMENTS - 1) / DOCUMENTS;
+        for (int i = 0; i * perDocument < corpus.length; i++) {
+            String[] part = Arrays.copyOfRange(corpus, i * perDocument, Math.min(corpus.length, (i + 1) * perDocument));
+            Files.writeString(folder.resolve("doc" + i + ".txt"), String.join(" ", part));
+        }
+        output = Files.createTempFile("ingestion-benchmark", ".tset");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        new TokenScanner().scan(document, new TokenScanner.TokenHandler() {
+            @Override
+            public void onToken(char[] chars, int start, int length) {
+                blackhole.consume(length);
+            }
+
+            @Override
+            public void onSentenceEnd() {
+            }
+        });
+    }
+
+    @Benchmark
+    public void regexTokenize(Blackhole blackhole) {
+        for (String sentence : document.split("[.!?]+")) {
+            blackhole.consume(legacyTokenize(sentence));
+        }
+    }
+
+    /**
+     * The regex tokenizer TokenScanner replaced, as in TokenScannerTest
+     */
+    private static List<String> legacyTokenize(String sentence) {
+        String cleaned = sentence.toLowerCase()
+                .replaceAll("[^a-z0-9\\s-]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+        if (cleaned.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(cleaned.split("\\s+"))
+                .filter(word -> word.length() > 2)
+                .filter(word -> !STOP_WORDS.contains(word))
+                .filter(word -> !word.matches("\\d+"))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public TrainingSetFile processDocumentsFolder() throws IOException {
+        return processor.processDocumentsFolder(folder.toString(), output, 0L);
+    }
+}
@@ -0,0 +1,63 @@
+package org.search.embedding.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.search.embedding.ingest.CoOccurrenceAccumulator;
+import org.search.embedding.ingest.PairWindow;
+import org.search.embedding.ingest.TokenScanner;
+import org.search.embedding.model.SiameseEmbedding.TrainingPair;
+import org.search.embedding.service.DocumentProcessor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pair deduplication as the folder ingestion does it: every windowed pair
+ * is folded into one CoOccurrenceAccumulator entry, then the unique pairs
+ * are labelled by NPMI. The two halves are measured separately; larger
+ * vocabularies mean more unique pairs and a bigger hash table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PairDedupBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int vocabularySize;
+
+    @Param({"1000", "10000"})
+    public int sentences;
+
+    private String document;
+    private CoOccurrenceAccumulator accumulated;
+
+    @Setup
+    public void setUp() {
+        document = new SyntheticCorpus(vocabularySize, 42).document(sentences);
+        accumulated = accumulate();
+    }
+
+    @Benchmark
+    public CoOccurrenceAccumulator accumulate() {
+        CoOccurrenceAccumulator accumulator = new CoOccurrenceAccumulator();
+        new TokenScanner().scan(document, new PairWindow(accumulator.getWords(), DocumentProcessor.MAX_DISTANCE, accumulator));
+        return accumulator;
+    }
+
+    @Benchmark
+    public List<TrainingPair> toTrainingPairs() {
+        return accumulated.toTrainingPairs();
+    }
+}
@@ -0,0 +1,227 @@
+package org.search.embedding.benchmark;
+
+import org.search.embedding.CustomEmbeddingApplication;
+import org.search.embedding.service.GenericEmbeddingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load comparison of the platform-thread default and the virtual-thread
+ * mode (the "virtual" Spring profile). Boots the application once per
+ * profile on a random port, with the generic model swapped for one that
+ * blocks for a fixed time the way a remote or saturated model would, then
+ * drives POST /api/similarity/generic from closed-loop clients and reports
+ * throughput and latency percentiles. This is a plain main rather than a
+ * JMH benchmark: a run is a whole server under load, and it has to bow out
+ * cleanly below Java 21, where the virtual profile silently falls back to
+ * platform threads.
+ *
+ * <p>Generic admission control is lifted unless genericMaxConcurrent is
+ * set, since its default of 4 would cap both modes at the same rate; the
+ * platform-thread run is then bounded by Tomcat's 200 worker threads.
+ *
+ * <pre>
+ * java -Dclients=400 -DlatencyMs=50 -cp target/benchmarks.jar org.search.embedding.benchmark.RequestThreadingLoad
+ * </pre>
+ */
+public final class RequestThreadingLoad {
+
+    private static final int CLIENTS = Integer.getInteger("clients", 400);
+    private static final int WARMUP_SECONDS = Integer.getInteger("warmupSeconds", 5);
+    private static final int SECONDS = Integer.getInteger("seconds", 20);
+    private static final int LATENCY_MS = Integer.getInteger("latencyMs", 50);
+    private static final int GENERIC_MAX_CONCURRENT = Integer.getInteger("genericMaxConcurrent", 0);
+    private static final String[] PROFILES = System.getProperty("profiles", "default,virtual").split(",");
+
+    private static final String BODY = "{\"word1\":\"storage\",\"word2\":\"compute\"}";
+
+    private RequestThreadingLoad() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int feature = Runtime.version().feature();
+        if (feature < 21) {
+            System.out.println("Skipping: virtual threads need Java 21, this is Java " + feature);
+            return;
+        }
+
+        System.out.printf("%d clients, %d ms generic model, %d s per run after %d s warmup%n",
+                CLIENTS, LATENCY_MS, SECONDS, WARMUP_SECONDS);
+        System.out.printf("%-8s %10s %9s %9s %9s %8s%n", "profile", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (String profile : PROFILES) {
+            Result result = run(profile.trim());
+            System.out.printf("%-8s %10.0f %9.1f %9.1f %9.1f %8d%n", profile.trim(),
+                    result.throughput(), result.percentileMs(0.50), result.percentileMs(0.99),
+                    result.percentileMs(1.0), result.errors);
+        }
+    }
+
+    private static Result run(String profile) throws Exception {
+        SpringApplication application = new SpringApplication(
+                CustomEmbeddingApplication.class, BlockingGenericModelConfiguration.class);
+        if (!"default".equals(profile)) {
+            application.setAdditionalProfiles(profile);
+        }
+        // Command-line arguments, so they win over application.properties
+        String[] args = {
+                "--server.port=0",
+                "--admission.similarity.generic.max-concurrent=" + GENERIC_MAX_CONCURRENT,
+                "--benchmark.generic.latency-ms=" + LATENCY_MS
+        };
+
+        try (ConfigurableApplicationContext context = application.run(args)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/similarity/generic"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(BODY))
+                    .build();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            drive(client, request, WARMUP_SECONDS);
+            return drive(client, request, SECONDS);
+        }
+    }
+
+    /**
+     * Keep CLIENTS requests in flight for the given time, each client
+     * sending its next request as soon as the previous one returns
+     */
+    private static Result drive(HttpClient client, HttpRequest request, int seconds) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<Result>> futures = new ArrayList<>(CLIENTS);
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit(() -> {
+                    Result result = new Result(seconds);
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                result.add(System.nanoTime() - start);
+                            } else {
+                                result.errors++;
+                            }
+                        } catch (IOException e) {
+                            result.errors++;
+                        }
+                    }
+                    return result;
+                }));
+            }
+
+            Result total = new Result(seconds);
+            for (Future<Result> future : futures) {
+                total.merge(future.get());
+            }
+            return total;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * Latencies of successful requests plus a count of failed ones
+     */
+    private static final class Result {
+        private final int seconds;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        private boolean sorted;
+
+        Result(int seconds) {
+            this.seconds = seconds;
+        }
+
+        void add(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            sorted = false;
+        }
+
+        void merge(Result other) {
+            for (int i = 0; i < other.count; i++) {
+                add(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+
+        double throughput() {
+            return (double) count / seconds;
+        }
+
+        double percentileMs(double percentile) {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            if (!sorted) {
+                Arrays.sort(latencies, 0, count);
+                sorted = true;
+            }
+            int index = (int) Math.ceil(percentile * count) - 1;
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    /**
+     * Replaces the component-scanned generic model, which would download a
+     * transformer at startup
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class BlockingGenericModelConfiguration {
+
+        @Bean
+        GenericEmbeddingService genericEmbeddingService(@Value("${benchmark.generic.latency-ms}") long latencyMs) {
+            return new BlockingGenericModel(latencyMs);
+        }
+    }
+
+    /**
+     * A generic model whose every comparison blocks the request thread for
+     * a fixed time
+     */
+    static class BlockingGenericModel extends GenericEmbeddingService {
+
+        private final long latencyMs;
+
+        BlockingGenericModel(long latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public void init() {
+            // Nothing to load
+        }
+
+        @Override
+        public float calculateGenericSimilarity(String text1, String text2) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0.5f;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.search.embedding.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.search.embedding.model.SiameseEmbedding;
+import org.search.embedding.model.SiameseEmbedding.TrainingPair;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SiameseEmbedding training and lookup on the PyTorch engine. The native
+ * library and its JNI bridge are bundled for linux-x86_64; on other
+ * platforms DJL downloads them on first use.
+ *
+ * train runs one epoch per invocation on a fresh model, so its score is
+ * dominated by the per-pair training steps; divide by trainingPairs for
+ * the cost of one step. The one-hot input is vocabulary-wide, so step
+ * cost grows with the vocabulary. calculateSimilarity uses a model trained
+ * once per trial and is scored per lookup.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class SiameseEmbeddingBenchmark {
+
+    private static final int EMBED_DIM = 128;
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000", "10000"})
+    public int vocabularySize;
+
+    @Param({"500", "2000"})
+    public int trainingPairs;
+
+    private List<TrainingPair> pairs;
+
+    @Setup
+    public void setUp() {
+        pairs = new SyntheticCorpus(vocabularySize, 42).trainingPairs(trainingPairs);
+    }
+
+    private static SiameseEmbedding newModel() {
+        return new SiameseEmbedding(EMBED_DIM, 1.0f, 1, 0.001f);
+    }
+
+    /**
+     * A fresh model per train invocation
+     */
+    @State(Scope.Thread)
+    public static class Untrained {
+        SiameseEmbedding model;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            model = newModel();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            model.close();
+        }
+    }
+
+    /**
+     * One model trained on the trial's pairs, with random vocabulary words
+     * to look up
+     */
+    @State(Scope.Benchmark)
+    public static class Trained {
+        SiameseEmbedding model;
+        String[] words1 = new String[LOOKUPS];
+        String[] words2 = new String[LOOKUPS];
+
+        @Setup
+        public void setUp(SiameseEmbeddingBenchmark benchmark) throws Exception {
+            model = newModel();
+            model.train(benchmark.pairs);
+            List<String> vocabulary = model.getVocabulary();
+            Random random = new Random(42);
+            for (int i = 0; i < LOOKUPS; i++) {
+                words1[i] = vocabulary.get(random.nextInt(vocabulary.size()));
+                words2[i] = vocabulary.get(random.nextInt(vocabulary.size()));
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            model.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public SiameseEmbedding train(Untrained untrained) throws Exception {
+        untrained.model.train(pairs);
+        return untrained.model;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @OperationsPerInvocation(LOOKUPS)
+    public float calculateSimilarity(Trained trained) throws Exception {
+        float sum = 0f;
+        for (int i = 0; i < LOOKUPS; i++) {
+            sum += trained.model.calculateSimilarity(trained.words1[i], trained.words2[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,121 @@
+package org.search.embedding.benchmark;
+
+import org.search.embedding.model.SiameseEmbedding.TrainingPair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded generator for benchmark inputs, so every run sees the same text
+ * without reading documents from disk.
+ *
+ * Words are drawn from a fixed vocabulary with Zipf-distributed
+ * frequencies, which gives the skew of natural text: a few words dominate
+ * and most pairs are rare. Every vocabulary word survives TokenScanner
+ * (letters only, at least three characters, never a stop word); sentences
+ * also carry stop words, numbers and punctuation for it to drop.
+ */
+public final class SyntheticCorpus {
+
+    private static final String[] NOISE = {"the", "and", "of", "is", "to", "2024", "a"};
+
+    private final String[] vocabulary;
+    private final double[] cumulative;
+    private final Random random;
+
+    public SyntheticCorpus(int vocabularySize, long seed) {
+        if (vocabularySize <= 0) {
+            throw new IllegalArgumentException("Vocabulary size must be positive: " + vocabularySize);
+        }
+        this.vocabulary = new String[vocabularySize];
+        this.cumulative = new double[vocabularySize];
+        this.random = new Random(seed);
+
+        double total = 0;
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            vocabulary[rank] = word(rank);
+            total += 1.0 / (rank + 1);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            cumulative[rank] /= total;
+        }
+    }
+
+    /**
+     * Word for a frequency rank: "x" followed by the rank in base 26,
+     * padded to two letters
+     */
+    static String word(int rank) {
+        StringBuilder word = new StringBuilder();
+        int value = rank;
+        do {
+            word.append((char) ('a' + value % 26));
+            value /= 26;
+        } while (value > 0);
+        while (word.length() < 2) {
+            word.append('a');
+        }
+        return word.append('x').reverse().toString();
+    }
+
+    public String[] getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Draw a word by Zipf frequency
+     */
+    public String nextWord() {
+        double u = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return vocabulary[low];
+    }
+
+    /**
+     * Sentences of 8 to 27 tokens, roughly one in eight of them noise
+     */
+    public String[] sentences(int count) {
+        String[] sentences = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder sentence = new StringBuilder();
+            int length = 8 + random.nextInt(20);
+            for (int w = 0; w < length; w++) {
+                if (w > 0) {
+                    sentence.append(random.nextInt(10) == 0 ? ", " : " ");
+                }
+                sentence.append(random.nextInt(8) == 0 ? NOISE[random.nextInt(NOISE.length)] : nextWord());
+            }
+            sentences[i] = sentence.append('.').toString();
+        }
+        return sentences;
+    }
+
+    /**
+     * The sentences joined into one document
+     */
+    public String document(int sentenceCount) {
+        return String.join(" ", sentences(sentenceCount));
+    }
+
+    /**
+     * Training pairs between Zipf-drawn words with uniform labels in [0, 1)
+     */
+    public List<TrainingPair> trainingPairs(int count) {
+        List<TrainingPair> pairs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pairs.add(new TrainingPair(nextWord(), nextWord(), random.nextFloat()));
+        }
+        return pairs;
+    }
+}
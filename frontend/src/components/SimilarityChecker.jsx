@@ -2,28 +2,46 @@ import React, { useState, useEffect } from 'react';
 import apiService from '../services/apiService';
 import './SimilarityChecker.css';
 
+const SUGGESTION_LIMIT = 20;
+const SUGGESTION_DELAY_MS = 250;
+
+// Vocabulary words starting with what has been typed, fetched once typing pauses
+const useVocabularySuggestions = (word, enabled) => {
+  const [suggestions, setSuggestions] = useState([]);
+
+  useEffect(() => {
+    if (!enabled) {
+      setSuggestions([]);
+      return undefined;
+    }
+    let cancelled = false;
+    const timer = setTimeout(async () => {
+      try {
+        const data = await apiService.getVocabulary(word.trim().toLowerCase(), 0, SUGGESTION_LIMIT);
+        if (!cancelled) {
+          setSuggestions(data.vocabulary || []);
+        }
+      } catch (err) {
+        console.error('Error fetching vocabulary:', err);
+      }
+    }, SUGGESTION_DELAY_MS);
+    return () => {
+      cancelled = true;
+      clearTimeout(timer);
+    };
+  }, [word, enabled]);
+
+  return suggestions;
+};
+
 const SimilarityChecker = ({ modelTrained }) => {
   const [word1, setWord1] = useState('');
   const [word2, setWord2] = useState('');
   const [result, setResult] = useState(null);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState(null);
-  const [vocabulary, setVocabulary] = useState([]);
-
-  useEffect(() => {
-    if (modelTrained) {
-      fetchVocabulary();
-    }
-  }, [modelTrained]);
-
-  const fetchVocabulary = async () => {
-    try {
-      const data = await apiService.getVocabulary();
-      setVocabulary(data.vocabulary || []);
-    } catch (err) {
-      console.error('Error fetching vocabulary:', err);
-    }
-  };
+  const suggestions1 = useVocabularySuggestions(word1, modelTrained);
+  const suggestions2 = useVocabularySuggestions(word2, modelTrained);
 
   const handleCalculate = async () => {
     if (!word1 || !word2) {
@@ -100,8 +118,8 @@ const SimilarityChecker = ({ modelTrained }) => {
             disabled={!modelTrained}
           />
           <datalist id="vocabulary1">
-            {vocabulary.map((word, idx) => (
-              <option key={idx} value={word} />
+            {suggestions1.map((word) => (
+              <option key={word} value={word} />
             ))}
           </datalist>
         </div>
@@ -121,7 +139,7 @@ const SimilarityChecker = ({ modelTrained }) => {
             disabled={!modelTrained}
           />
           <datalist id="vocabulary2">
-            {vocabulary.map((word, idx) => (
+            {suggestions2.map((word) => (
               <option key={idx} value={word} />
             ))}
           </datalist>
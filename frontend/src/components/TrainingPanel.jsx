@@ -3,24 +3,62 @@ import { LineChart, Line, XAxis, YAxis, CartesianGrid, Tooltip, Legend, Responsi
 import apiService from '../services/apiService';
 import './TrainingPanel.css';
 
+const VOCABULARY_PAGE = 50;
+
+// Keep the live loss chart bounded the same way the server does
+const MAX_LOSS_POINTS = 200;
+
+const downsample = (points) => {
+  const merged = [];
+  for (let i = 0; i + 1 < points.length; i += 2) {
+    merged.push({ epoch: points[i + 1].epoch, loss: (points[i].loss + points[i + 1].loss) / 2 });
+  }
+  return merged;
+};
+
 const TrainingPanel = ({ onTrainingComplete }) => {
   const [status, setStatus] = useState(null);
+  const [progress, setProgress] = useState(null);
+  const [lossPoints, setLossPoints] = useState([]);
   const [isTraining, setIsTraining] = useState(false);
   const [vocabulary, setVocabulary] = useState([]);
+  const [vocabularySize, setVocabularySize] = useState(0);
+  const [vocabularyMatches, setVocabularyMatches] = useState(0);
+  const [vocabularyPrefix, setVocabularyPrefix] = useState('');
   const [stats, setStats] = useState(null);
   const [error, setError] = useState(null);
 
   useEffect(() => {
     fetchStatus();
-    const interval = setInterval(fetchStatus, 2000); // Poll every 2 seconds
-    return () => clearInterval(interval);
+    let wasTraining = false;
+    const unsubscribe = apiService.subscribeToTrainingEvents((delta) => {
+      setProgress(delta);
+      setIsTraining(delta.isTraining);
+      if (delta.isTraining && delta.epoch > 0) {
+        setLossPoints((points) => {
+          if (points.length > 0 && points[points.length - 1].epoch >= delta.epoch) {
+            return points.filter((point) => point.epoch < delta.epoch).concat({ epoch: delta.epoch, loss: delta.loss });
+          }
+          const next = points.concat({ epoch: delta.epoch, loss: delta.loss });
+          return next.length > MAX_LOSS_POINTS ? downsample(next) : next;
+        });
+      }
+      // Config, stats and vocabulary only change when a run ends
+      if (wasTraining && !delta.isTraining) {
+        fetchStatus();
+      }
+      wasTraining = delta.isTraining;
+    });
+    return unsubscribe;
   }, []);
 
   const fetchStatus = async () => {
     try {
       const data = await apiService.getStatus();
       setStatus(data);
+      setProgress(data.progress);
       setIsTraining(data.progress?.isTraining || false);
+      setLossPoints(toLossPoints(data.progress?.lossHistory));
       
       if (data.isTrained && data.stats) {
         setStats(data.stats);
@@ -37,10 +75,12 @@ const TrainingPanel = ({ onTrainingComplete }) => {
     }
   };
 
-  const fetchVocabulary = async () => {
+  const fetchVocabulary = async (prefix = '') => {
     try {
-      const data = await apiService.getVocabulary();
+      const data = await apiService.getVocabulary(prefix, 0, VOCABULARY_PAGE);
       setVocabulary(data.vocabulary || []);
+      setVocabularySize(data.size || 0);
+      setVocabularyMatches(data.matches || 0);
     } catch (err) {
       console.error('Error fetching vocabulary:', err);
     }
@@ -56,17 +96,21 @@ const TrainingPanel = ({ onTrainingComplete }) => {
     }
   };
 
-  const getLossChartData = () => {
-    if (!status?.progress?.lossHistory) return [];
-    return status.progress.lossHistory.map((loss, index) => ({
-      epoch: index + 1,
+  // Each server point averages epochsPerPoint epochs
+  const toLossPoints = (history) => {
+    if (!history?.values) return [];
+    return history.values.map((loss, index) => ({
+      epoch: (index + 1) * history.epochsPerPoint,
       loss: loss,
     }));
   };
 
+  const currentEpoch = progress?.epoch ?? progress?.currentEpoch ?? 0;
+  const currentLoss = progress?.loss ?? progress?.currentLoss ?? 0;
+
   const getProgressPercentage = () => {
-    if (!status?.progress) return 0;
-    return Math.round((status.progress.currentEpoch / status.progress.totalEpochs) * 100);
+    if (!progress?.totalEpochs) return 0;
+    return Math.round((currentEpoch / progress.totalEpochs) * 100);
   };
 
   return (
@@ -95,7 +139,7 @@ const TrainingPanel = ({ onTrainingComplete }) => {
       )}
 
       {/* Training Progress */}
-      {isTraining && status?.progress && (
+      {isTraining && progress && (
         <div className="training-progress">
           <h3>Training Progress</h3>
           <div className="progress-bar-container">
@@ -105,20 +149,20 @@ const TrainingPanel = ({ onTrainingComplete }) => {
             />
           </div>
           <p>
-            Epoch {status.progress.currentEpoch} / {status.progress.totalEpochs} 
+            Epoch {currentEpoch} / {progress.totalEpochs} 
             ({getProgressPercentage()}%)
           </p>
-          <p className="loss-value">Current Loss: {status.progress.currentLoss.toFixed(4)}</p>
-          <p className="status-text">{status.progress.status}</p>
+          <p className="loss-value">Current Loss: {currentLoss.toFixed(4)}</p>
+          <p className="status-text">{progress.status}</p>
         </div>
       )}
 
       {/* Loss Chart */}
-      {status?.progress?.lossHistory && status.progress.lossHistory.length > 0 && (
+      {lossPoints.length > 0 && (
         <div className="loss-chart">
           <h3>Training Loss</h3>
           <ResponsiveContainer width="100%" height={250}>
-            <LineChart data={getLossChartData()}>
+            <LineChart data={lossPoints}>
               <CartesianGrid strokeDasharray="3 3" />
               <XAxis dataKey="epoch" label={{ value: 'Epoch', position: 'insideBottom', offset: -5 }} />
               <YAxis label={{ value: 'Loss', angle: -90, position: 'insideLeft' }} />
@@ -198,15 +242,25 @@ const TrainingPanel = ({ onTrainingComplete }) => {
       )}
 
       {/* Vocabulary Display */}
-      {vocabulary.length > 0 && (
+      {vocabularySize > 0 && (
         <div className="vocabulary-section">
-          <h3>Vocabulary ({vocabulary.length} words)</h3>
+          <h3>Vocabulary ({vocabularySize} words)</h3>
+          <input
+            type="text"
+            className="vocab-search"
+            placeholder="Search by prefix..."
+            value={vocabularyPrefix}
+            onChange={(e) => {
+              setVocabularyPrefix(e.target.value);
+              fetchVocabulary(e.target.value);
+            }}
+          />
           <div className="vocabulary-list">
-            {vocabulary.slice(0, 50).map((word, idx) => (
+            {vocabulary.map((word, idx) => (
               <span key={idx} className="vocab-word">{word}</span>
             ))}
-            {vocabulary.length > 50 && (
-              <span className="vocab-more">... and {vocabulary.length - 50} more</span>
+            {vocabularyMatches > vocabulary.length && (
+              <span className="vocab-more">... and {vocabularyMatches - vocabulary.length} more</span>
             )}
           </div>
         </div>
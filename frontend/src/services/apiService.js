@@ -16,13 +16,32 @@ export const apiService = {
     return response.data;
   },
 
+  getTrainingJob: async (jobId) => {
+    const response = await apiClient.get(`/train/${jobId}`);
+    return response.data;
+  },
+
+  cancelTrainingJob: async (jobId) => {
+    const response = await apiClient.delete(`/train/${jobId}`);
+    return response.data;
+  },
+
+  // Stream of training progress deltas; returns a function that closes it.
+  // EventSource reconnects on its own after network errors.
+  subscribeToTrainingEvents: (onProgress) => {
+    const source = new EventSource(`${API_BASE_URL}/train/events`);
+    source.addEventListener('progress', (event) => onProgress(JSON.parse(event.data)));
+    return () => source.close();
+  },
+
   getStatus: async () => {
     const response = await apiClient.get('/status');
     return response.data;
   },
 
-  getVocabulary: async () => {
-    const response = await apiClient.get('/vocabulary');
+  // One page of the vocabulary, optionally filtered by prefix
+  getVocabulary: async (prefix = '', offset = 0, limit = 100) => {
+    const response = await apiClient.get('/vocabulary', { params: { prefix, offset, limit } });
     return response.data;
   },
 